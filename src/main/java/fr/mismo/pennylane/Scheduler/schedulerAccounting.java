@@ -7,7 +7,11 @@ import fr.mismo.pennylane.dao.repository.LogRepository;
 import fr.mismo.pennylane.dao.repository.SiteRepository;
 import fr.mismo.pennylane.dto.accounting.Item;
 import fr.mismo.pennylane.service.AccountingService;
+import fr.mismo.pennylane.service.CustomerDirectory;
 import fr.mismo.pennylane.service.InvoiceService;
+import fr.mismo.pennylane.service.LedgerAccountIndex;
+import fr.mismo.pennylane.service.ProductCatalogIndex;
+import fr.mismo.pennylane.service.SyncExecutor;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.service.spi.ServiceException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,9 +20,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.client.RestClientException;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
 
 @Component
 @Slf4j
@@ -42,6 +44,18 @@ public class schedulerAccounting {
     @Autowired
     LogRepository logRepository;
 
+    @Autowired
+    SyncExecutor syncExecutor;
+
+    @Autowired
+    LedgerAccountIndex ledgerAccountIndex;
+
+    @Autowired
+    ProductCatalogIndex productCatalogIndex;
+
+    @Autowired
+    CustomerDirectory customerDirectory;
+
     // Méthode auxiliaire pour gérer les exceptions pendant la synchronisation
     private void handleException(Integer id, Exception e) {
         if (e instanceof RestClientException) {
@@ -59,12 +73,12 @@ public class schedulerAccounting {
         log.info("🔄 [CRON ENTRIES] Démarrage de la synchronisation des écritures");
         log.debug("== Début de la synchronisation globale des écritures ==");
 
-        AtomicReference<List<Item>> accountPennylane = new AtomicReference<>(new ArrayList<>());
         List<SiteEntity> sites = siteRepository.findAllByPennylaneActifTrue();
 
         log.info("📊 Nombre de sites à traiter : {}", sites.size());
 
-        sites.forEach(site -> {
+        // Sites en parallèle ; les lots d'un même site restent séquentiels (plan comptable partagé)
+        syncExecutor.forEachSite("syncEntries", sites, site -> {
             long startSite = System.currentTimeMillis();
             log.debug("Traitement du site {} ...", site.getCode());
 
@@ -74,8 +88,13 @@ public class schedulerAccounting {
                 return;
             }
 
-            accountPennylane.set(accountsApi.listAllLedgerAccounts(site));
-            List<Item> finalAccountPennylane = accountPennylane.get();
+            List<Item> finalAccountPennylane = accountsApi.listAllLedgerAccounts(site);
+            // Plan comptable rechargé à chaque passage, puis complété par les lots du site
+            ledgerAccountIndex.load(site, finalAccountPennylane);
+            // Catalogue produits : changelog depuis le passage précédent, rechargement complet à expiration
+            productCatalogIndex.refresh(site);
+            // Annuaire clients : même principe, consulté par processCustomer
+            customerDirectory.refresh(site);
 
             ecrituresList.forEach(ecriture -> {
                 long startEcriture = System.currentTimeMillis();
@@ -105,7 +124,7 @@ public class schedulerAccounting {
 
         List<SiteEntity> sites = siteRepository.findAllByPennylaneAchatTrue();
 
-        sites.forEach(site -> {
+        syncExecutor.forEachSite("UpdateSale", sites, site -> {
             long startSite = System.currentTimeMillis();
             log.debug("Traitement des factures pour le site {} ...", site.getCode());
 
@@ -116,7 +135,7 @@ public class schedulerAccounting {
                 return;
             }
 
-            aFactureList.forEach(aFacture -> {
+            syncExecutor.forEachDocument(aFactureList, aFacture -> {
                 long startFacture = System.currentTimeMillis();
                 log.info("== Démarrage de la mise en BAP de la facture {} (Athénéo -> Pennylane) ==", aFacture);
                 try {
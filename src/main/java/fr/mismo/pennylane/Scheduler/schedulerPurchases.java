@@ -7,12 +7,18 @@ import fr.mismo.pennylane.dao.repository.EcritureRepository;
 import fr.mismo.pennylane.dao.repository.SiteRepository;
 import fr.mismo.pennylane.dto.Category;
 import fr.mismo.pennylane.dto.invoice.*;
+import fr.mismo.pennylane.model.SupplierInvoiceState;
 import fr.mismo.pennylane.service.CategoryCacheService;
 import fr.mismo.pennylane.service.InvoiceService;
+import fr.mismo.pennylane.service.SupplierDirectory;
+import fr.mismo.pennylane.service.SyncExecutor;
+import fr.mismo.pennylane.service.SyncWatermarkService;
 import fr.mismo.pennylane.settings.Config;
+import fr.mismo.pennylane.util.CircuitOpenException;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.service.spi.ServiceException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
@@ -24,7 +30,11 @@ import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Component
@@ -52,8 +62,33 @@ public class schedulerPurchases {
     @Autowired
     CategoryCacheService categoryCacheService;
 
+    @Autowired
+    SyncExecutor syncExecutor;
+
+    @Autowired
+    SyncWatermarkService syncWatermarkService;
+
+    @Autowired
+    SupplierDirectory supplierDirectory;
+
     private static final DateTimeFormatter ISO_DATE_TIME = DateTimeFormatter.ISO_DATE_TIME;
 
+    // Ne pas repasser les factures d'achat déjà importées et inchangées
+    @Value("${sync.purchases.skipUnchanged:true}")
+    private boolean skipUnchanged = true;
+
+    // Point de reprise par site (table PENNYLANE_SYNC_WATERMARK)
+    @Value("${sync.purchases.watermark.enabled:true}")
+    private boolean watermarkEnabled = true;
+
+    // Recouvrement avec le passage précédent (horloges, modifications en cours pendant le passage)
+    @Value("${sync.purchases.watermark.overlapMinutes:15}")
+    private long watermarkOverlapMinutes = 15;
+
+    // Profondeur du changelog Pennylane : au-delà, relecture complète de la période
+    @Value("${sync.purchases.watermark.changelogRetentionDays:27}")
+    private long changelogRetentionDays = 27;
+
     @Scheduled(cron = "${cron.Purchases}")
     public void SyncPurchases() {
         long startGlobal = System.currentTimeMillis();
@@ -67,15 +102,17 @@ public class schedulerPurchases {
         String statusAFiltrer = config.getStatusAFiltrer();
 
         List<SiteEntity> sites = siteRepository.findAllByPennylaneAchatTrue();
-        boolean hasProcessedInvoices = false;
+        AtomicBoolean hasProcessedInvoices = new AtomicBoolean(false);
+        // Factures laissées en attente par un disjoncteur ouvert
+        AtomicInteger deferredInvoices = new AtomicInteger();
 
-        // Variables pour logging regroupé
-        List<String> allCategoriesAFiltrer = new ArrayList<>();
-        List<Long> allCategoryIds = new ArrayList<>();
-        int totalItems = 0;
-        int totalFilteredInvoices = 0;
+        // Variables pour logging regroupé (alimentées en parallèle par les sites)
+        Queue<String> allCategoriesAFiltrer = new ConcurrentLinkedQueue<>();
+        Queue<Long> allCategoryIds = new ConcurrentLinkedQueue<>();
+        AtomicInteger totalItems = new AtomicInteger();
+        AtomicInteger totalFilteredInvoices = new AtomicInteger();
 
-        for (SiteEntity site : sites) {
+        syncExecutor.forEachSite("SyncPurchases", sites, site -> {
             long startSite = System.currentTimeMillis();
             log.debug("== Début du traitement des factures pour le site {} ==", site.getCode());
 
@@ -102,17 +139,30 @@ public class schedulerPurchases {
                                 + "categoriesAFiltrer={} ({}), categoryIds={} ({})",
                         categoriesAFiltrer, categoriesAFiltrer.size(),
                         categoryIds, categoryIds.size());
-                log.warn("Tâche SyncPurchases arrêtée pour éviter une incohérence.");
-                return; // quitte la méthode, donc stoppe le cron ici
+                log.warn("Site {} ignoré par SyncPurchases pour éviter une incohérence.", site.getCode());
+                return; // les sites étant traités en parallèle, seul ce site est arrêté
             }
 
+            // Point de reprise : seules les factures modifiées depuis le dernier passage réussi sont relues
+            OffsetDateTime debutPassage = OffsetDateTime.now(ZoneOffset.UTC);
+            OffsetDateTime reprise = watermarkEnabled ? syncWatermarkService.lire(site, SyncWatermarkService.SYNC_PURCHASES) : null;
+            boolean incrementale = reprise != null && reprise.isAfter(debutPassage.minusDays(changelogRetentionDays));
+            String mode = incrementale ? SyncWatermarkService.MODE_INCREMENTALE : SyncWatermarkService.MODE_COMPLETE;
+
             // Chrono récupération factures
             long startInvoicesApi = System.currentTimeMillis();
-            List<SupplierInvoiceResponse.SupplierInvoiceItem> items = invoiceApi.listAllSupplierInvoices(site, categoryIds, syncDateTime);
+            List<SupplierInvoiceResponse.SupplierInvoiceItem> items = incrementale
+                    ? listChangedSupplierInvoices(site, categoryIds, reprise.minusMinutes(watermarkOverlapMinutes), syncDateTime)
+                    : invoiceApi.listAllSupplierInvoices(site, categoryIds, syncDateTime);
+
+            if (items == null) {
+                log.error("Site {} - Factures d'achat illisibles, point de reprise inchangé", site.getCode());
+                return;
+            }
 
             long durationInvoicesApi = System.currentTimeMillis() - startInvoicesApi;
-            log.debug("Site {} - Récupération des factures effectuée en {} ms ({} factures brutes)",
-                    site.getCode(), durationInvoicesApi, items.size());
+            log.debug("Site {} - Récupération des factures ({}) effectuée en {} ms ({} factures brutes)",
+                    site.getCode(), mode, durationInvoicesApi, items.size());
 
             log.debug("🔎 Début du filtrage: statusAFiltrer={}", statusAFiltrer);
 
@@ -131,38 +181,78 @@ public class schedulerPurchases {
 
             if (CollectionUtils.isEmpty(invoices)) {
                 log.debug("Aucune facture à synchroniser pour le site : {}", site.getCode());
-                continue;
+                syncWatermarkService.enregistrer(site, SyncWatermarkService.SYNC_PURCHASES, debutPassage, mode, 0);
+                return;
             }
 
-            for (SupplierInvoiceResponse.SupplierInvoiceItem invoice : invoices) {
+            // Factures déjà importées et identiques : écartées avant tout appel unitaire
+            Map<Long, SupplierInvoiceState> states = invoiceService.classifySupplierInvoices(invoices, site);
+            List<SupplierInvoiceResponse.SupplierInvoiceItem> toSync = invoices;
+            if (skipUnchanged && !states.isEmpty()) {
+                toSync = invoices.stream()
+                        .filter(invoice -> states.get(invoice.getId()) != SupplierInvoiceState.INCHANGEE)
+                        .toList();
+                if (toSync.size() < invoices.size()) {
+                    hasProcessedInvoices.set(true);
+                }
+            }
+            log.debug("Site {} - {} facture(s) nouvelle(s), {} modifiée(s), {} inchangée(s) ignorée(s)", site.getCode(),
+                    count(states, SupplierInvoiceState.NOUVELLE), count(states, SupplierInvoiceState.MODIFIEE),
+                    invoices.size() - toSync.size());
+
+            // Fournisseurs modifiés depuis le passage précédent retirés de l'annuaire avant l'import
+            supplierDirectory.refresh(site);
+
+            // Factures en erreur ou en attente : le point de reprise n'avance pas, elles seront relues
+            AtomicInteger siteFailures = new AtomicInteger();
+            syncExecutor.forEachDocument(toSync, invoice -> {
                 long startInvoice = System.currentTimeMillis();
                 try {
-                    invoiceService.syncInvoice(invoice, site, categoryIds);
-                    hasProcessedInvoices = true;
+                    // Erreur déjà relevée dans le forum : la facture compte comme en échec pour le point de reprise
+                    if (!invoiceService.syncInvoice(invoice, site, categoryIds, states.get(invoice.getId()))) {
+                        siteFailures.incrementAndGet();
+                    }
+                    hasProcessedInvoices.set(true);
+                } catch (final CircuitOpenException e) {
+                    log.warn(e.getMessage());
+                    deferredInvoices.incrementAndGet();
+                    siteFailures.incrementAndGet();
                 } catch (final RestClientException e) {
                     log.error("Erreur API Pennylane pour facture ID {}", invoice.getId(), e);
+                    siteFailures.incrementAndGet();
                 } catch (final ServiceException e) {
                     log.error("Erreur spécifique au service pour facture ID {}", invoice.getId(), e);
+                    siteFailures.incrementAndGet();
                 } catch (final Exception e) {
                     log.error("Erreur non gérée pour facture ID {}", invoice.getId(), e);
+                    siteFailures.incrementAndGet();
                 } finally {
                     long durationInvoice = System.currentTimeMillis() - startInvoice;
                     log.debug("Facture {} traitée en {} ms", invoice.getId(), durationInvoice);
                 }
-            }
+            });
 
             // Regroupement infos fpour logs globaux
             allCategoriesAFiltrer.addAll(categoriesAFiltrer);
             allCategoryIds.addAll(categoryIds);
-            totalItems += items.size();
-            totalFilteredInvoices += invoices.size();
+            totalItems.addAndGet(items.size());
+            totalFilteredInvoices.addAndGet(invoices.size());
+
+            if (siteFailures.get() == 0) {
+                syncWatermarkService.enregistrer(site, SyncWatermarkService.SYNC_PURCHASES, debutPassage, mode, toSync.size());
+            } else {
+                log.warn("Site {} - {} facture(s) en erreur ou en attente, point de reprise inchangé", site.getCode(), siteFailures.get());
+            }
 
             long durationSite = System.currentTimeMillis() - startSite;
             log.debug("== Fin du traitement du site {} ({} factures retenues, {} ms) ==",
                     site.getCode(), invoices.size(), durationSite);
-        }
+        });
 
-        if (hasProcessedInvoices) {
+        if (deferredInvoices.get() > 0) {
+            log.warn("{} facture(s) laissée(s) en attente (disjoncteur ouvert), date de dernière synchronisation inchangée",
+                    deferredInvoices.get());
+        } else if (hasProcessedInvoices.get()) {
             log.debug("Catégories à filtrer : {}", allCategoriesAFiltrer.stream().distinct().toList());
             log.debug("IDs des catégories retenues : {}", allCategoryIds.stream().distinct().toList());
             log.debug("Nombre total de factures récupérées sur l'API : {}", totalItems);
@@ -179,6 +269,77 @@ public class schedulerPurchases {
 
 
 
+    /**
+     * Factures d'achat modifiées depuis cette date d'après le changelog Pennylane, lues par pages d'ids,
+     * restreintes comme en relecture complète aux factures datées de la période facture.daysBackward.
+     *
+     * @return null si le changelog ou les factures sont illisibles
+     */
+    private List<SupplierInvoiceResponse.SupplierInvoiceItem> listChangedSupplierInvoices(
+            SiteEntity site, List<Long> categoryIds, OffsetDateTime since, OffsetDateTime syncDateTime) {
+        List<ChangelogResponse.ChangelogItem> changelogs = invoiceApi.listAllSupplierInvoiceChangelogs(site, since);
+        if (changelogs == null) {
+            return null;
+        }
+        List<Long> ids = latestChangedIds(changelogs);
+        log.debug("Site {} - {} modification(s) depuis {}, {} facture(s) distincte(s)", site.getCode(), changelogs.size(), since, ids.size());
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        List<SupplierInvoiceResponse.SupplierInvoiceItem> invoices = invoiceApi.listSupplierInvoicesByIds(site, ids, categoryIds);
+        if (invoices == null) {
+            return null;
+        }
+        LocalDate from = syncDateTime.toLocalDate();
+        return invoices.stream()
+                .filter(invoice -> isDatedAfter(invoice, from))
+                .toList();
+    }
+
+    /**
+     * Facture sans date gardée ; une date illisible écarte la facture au lieu d'interrompre tout le site.
+     */
+    static boolean isDatedAfter(SupplierInvoiceResponse.SupplierInvoiceItem invoice, LocalDate from) {
+        if (!StringUtils.hasText(invoice.getDate())) {
+            return true;
+        }
+        try {
+            return LocalDate.parse(invoice.getDate()).isAfter(from);
+        } catch (DateTimeParseException e) {
+            log.warn("Facture d'achat {} ignorée : date illisible '{}'", invoice.getId(), invoice.getDate());
+            return false;
+        }
+    }
+
+    /**
+     * Ids des factures du changelog, une fois chacune d'après sa dernière modification ;
+     * une facture dont la dernière opération est une suppression n'est plus lisible et est écartée.
+     */
+    static List<Long> latestChangedIds(List<ChangelogResponse.ChangelogItem> changelogs) {
+        Map<Long, ChangelogResponse.ChangelogItem> latest = new LinkedHashMap<>();
+        for (ChangelogResponse.ChangelogItem changelog : changelogs) {
+            if (changelog == null || changelog.getId() == null) {
+                continue;
+            }
+            latest.merge(changelog.getId(), changelog, (current, candidate) ->
+                    changedAt(candidate).isBefore(changedAt(current)) ? current : candidate);
+        }
+        return latest.values().stream()
+                .filter(changelog -> !"delete".equalsIgnoreCase(changelog.getOperation()))
+                .map(ChangelogResponse.ChangelogItem::getId)
+                .toList();
+    }
+
+    private static OffsetDateTime changedAt(ChangelogResponse.ChangelogItem changelog) {
+        OffsetDateTime changedAt = changelog.getProcessedAt() != null ? changelog.getProcessedAt() : changelog.getUpdatedAt();
+        return changedAt != null ? changedAt : OffsetDateTime.MIN;
+    }
+
+    private static long count(Map<Long, SupplierInvoiceState> states, SupplierInvoiceState state) {
+        return states.values().stream().filter(s -> s == state).count();
+    }
+
     @Scheduled(cron = "${cron.PurchasesV2}")
     public void SyncPurchasesV2() {
         log.info("== Démarrage de la synchronisation des FACTURES ACHATS V2 (Pennylane -> Athénéo) ==");
@@ -191,11 +352,10 @@ public class schedulerPurchases {
         String statusAFiltrer = config.getStatusAFiltrer();
 
         List<SiteEntity> sites = siteRepository.findAllByPennylaneAchatTrue();
-        boolean hasProcessedInvoices = false;
 
-        for (SiteEntity site : sites) {
+        syncExecutor.forEachSite("SyncPurchasesV2", sites, site -> {
             try {
-                List<Category> categories = invoiceApi.listAllCategories(site);
+                List<Category> categories = categoryCacheService.getCategories(site);
                 List<String> categoriesAFiltrer = config.getCategoriesAFiltrer();
 
                 List<Long> categoryIds = categories.stream()
@@ -208,49 +368,59 @@ public class schedulerPurchases {
 
                 if (CollectionUtils.isEmpty(changelogs)) {
                     log.trace("Aucune entrée dans le changelog pour le site : {}", site.getCode());
-                    continue;
+                    return;
                 }
 
-                for (ChangelogResponse.ChangelogItem changelogItem : changelogs) {
-                    try {
-                        // On récupère la facture complète
-                        SupplierInvoiceResponse.SupplierInvoiceItem invoice =
-                                invoiceApi.getSupplierInvoiceById(site, String.valueOf(changelogItem.getId()));
+                // Aucune catégorie retenue : aucune facture ne peut l'être (le filtre vide les prendrait toutes)
+                if (categoryIds.isEmpty()) {
+                    log.warn("Site {} - Aucune des catégories configurées {} n'existe, changelog ignoré", site.getCode(), categoriesAFiltrer);
+                    return;
+                }
 
-                        if (invoice == null) {
-                            log.warn("Impossible de récupérer la facture {}", changelogItem.getId());
-                            continue;
-                        }
+                // Une facture modifiée plusieurs fois n'est lue qu'une fois, dans son dernier état
+                List<Long> ids = latestChangedIds(changelogs);
+                log.debug("Site {} - {} modification(s) dans le changelog, {} facture(s) distincte(s) à relire",
+                        site.getCode(), changelogs.size(), ids.size());
+                if (ids.isEmpty()) {
+                    return;
+                }
 
-                        CategoryResponse category =
-                                accountsApi.getCategoryByUrl(invoice.getCategories().getUrl(), site);
+                // Lecture par pages de 100 ids ; le filtre sur les catégories retenues (cache des catégories)
+                // remplace la lecture de la catégorie de chaque facture
+                List<SupplierInvoiceResponse.SupplierInvoiceItem> invoices = invoiceApi.listSupplierInvoicesByIds(site, ids, categoryIds);
+                if (invoices == null) {
+                    log.error("Site {} - Impossible de récupérer les factures du changelog", site.getCode());
+                    return;
+                }
+                log.debug("Site {} - {} facture(s) des catégories retenues sur {}", site.getCode(), invoices.size(), ids.size());
 
-                        if (!categoryIds.contains(category.getId() != null ? category.getId().longValue() : null)) {
-                            log.debug("Facture {} ignorée car catégorie {} non autorisée", invoice.getId(), category.getId());
-                            continue;
-                        }
+                supplierDirectory.refresh(site);
 
+                syncExecutor.forEachDocument(invoices, invoice -> {
+                    try {
                         if (StringUtils.hasText(statusAFiltrer)
                                 && !statusAFiltrer.equals(invoice.getPaymentStatus())) {
                             log.debug("Facture {} ignorée car statut {} != {}", invoice.getId(), invoice.getPaymentStatus(), statusAFiltrer);
-                            continue;
+                            return;
                         }
 
                         invoiceService.syncInvoice(invoice, site,categoryIds);
 
+                    } catch (CircuitOpenException e) {
+                        log.warn(e.getMessage());
                     } catch (ServiceException e) {
-                        log.error("Erreur spécifique au service pour facture {}: {}", changelogItem.getId(), e.getMessage(), e);
+                        log.error("Erreur spécifique au service pour facture {}: {}", invoice.getId(), e.getMessage(), e);
                     } catch (RestClientException e) {
-                        log.error("Erreur RestClient lors de la récupération de la facture {}: {}", changelogItem.getId(), e.getMessage(), e);
+                        log.error("Erreur RestClient lors de la synchronisation de la facture {}: {}", invoice.getId(), e.getMessage(), e);
                     } catch (Exception e) {
-                        log.error("Erreur inattendue sur la facture {}: {}", changelogItem.getId(), e.getMessage(), e);
+                        log.error("Erreur inattendue sur la facture {}: {}", invoice.getId(), e.getMessage(), e);
                     }
-                }
+                });
 
             } catch (Exception e) {
                 log.error("Erreur inattendue lors du traitement du site {}: {}", site.getCode(), e.getMessage(), e);
             }
-        }
+        });
     }
 
 
@@ -262,7 +432,7 @@ public class schedulerPurchases {
         List<SiteEntity> sites = siteRepository.findAllByPennylaneAchatTrue();
         log.debug("Mise à jour des règlements pour {} sites ...", sites.size());
 
-        sites.forEach(site -> {
+        syncExecutor.forEachSite("UpdatePurchaseReglement", sites, site -> {
             long startSite = System.currentTimeMillis();
             log.debug("== Début du traitement des règlements pour le site {} ==", site.getCode());
 
@@ -275,7 +445,7 @@ public class schedulerPurchases {
 
             log.debug("Nombre de règlements à synchroniser pour le site {} : {}", site.getCode(), aFactureList.size());
 
-            aFactureList.forEach(aFacture -> {
+            syncExecutor.forEachDocument(aFactureList, aFacture -> {
                 long startInvoice = System.currentTimeMillis();
                 log.trace("== Démarrage de la synchronisation du règlement {} (Pennylane -> Athénéo) ==", aFacture);
 
@@ -311,7 +481,7 @@ public class schedulerPurchases {
 
         log.debug("Mise à jour des règlements ...");
 
-        sites.forEach(site -> {
+        syncExecutor.forEachSite("UpdatePurchaseReglementV2", sites, site -> {
 
             List<String> aFactureList = ecritureRepository.getMajReglement(site.getCode());
 
@@ -321,7 +491,7 @@ public class schedulerPurchases {
             }
 
             log.debug("== Traitement des REGLEMENTS pour le site : {} ==", site.getCode());
-            aFactureList.forEach(aFacture -> {
+            syncExecutor.forEachDocument(aFactureList, aFacture -> {
                 log.debug("== Démarrage de la synchronisation des REGLEMENTS (Pennylane -> Athénéo) ==");
 
                 try {
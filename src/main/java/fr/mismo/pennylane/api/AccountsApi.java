@@ -6,6 +6,7 @@ import fr.mismo.pennylane.dto.accounting.AccountingResponse;
 import fr.mismo.pennylane.dto.accounting.Item;
 import fr.mismo.pennylane.dto.invoice.CategoryResponse;
 import fr.mismo.pennylane.dto.invoice.FileAttachmentResponse;
+import fr.mismo.pennylane.util.SingleFlight;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -29,14 +30,16 @@ public class AccountsApi {
 
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final SingleFlight singleFlight;
 
     @Value("${api.url_v2}")
     private String apiUrlV2;
 
     @Autowired
-    public AccountsApi(RestTemplate restTemplate, ObjectMapper objectMapper) {
+    public AccountsApi(RestTemplate restTemplate, ObjectMapper objectMapper, SingleFlight singleFlight) {
         this.restTemplate = restTemplate;
         this.objectMapper = objectMapper;
+        this.singleFlight = singleFlight;
     }
 
 
@@ -64,9 +67,6 @@ public class AccountsApi {
                 } else {
                     break;
                 }
-
-                // Pause pour respecter la limite de 2 requêtes par seconde
-                Thread.sleep(600);
             } catch (Exception e) {
                 handleException("listAllLedgerAccounts", url, e);
                 break;
@@ -78,7 +78,10 @@ public class AccountsApi {
 
     public Item getLedgerAccountById(String id, SiteEntity site) {
         String url = apiUrlV2 + "ledger_accounts/" + id;
+        return singleFlight.get(site.getPennylaneToken(), url, () -> fetchLedgerAccountById(url, site));
+    }
 
+    private Item fetchLedgerAccountById(String url, SiteEntity site) {
         try {
             ResponseEntity<Item> response = restTemplate.exchange(
                     url,
@@ -86,8 +89,6 @@ public class AccountsApi {
                     new HttpEntity<>(headerBuilder(site.getPennylaneToken())),
                     Item.class
             );
-            // Pause pour respecter la limite de 2 requêtes par seconde
-            Thread.sleep(600);
             return response.getBody();
         } catch (Exception e) {
             handleException("getLedgerAccountById", url, e);
@@ -96,6 +97,11 @@ public class AccountsApi {
     }
 
     public Item getLedgerAccountByNumber(String number, SiteEntity site) {
+        return singleFlight.get(site.getPennylaneToken(), apiUrlV2 + "ledger_accounts?number=" + number,
+                () -> fetchLedgerAccountByNumber(number, site));
+    }
+
+    private Item fetchLedgerAccountByNumber(String number, SiteEntity site) {
         try {
             String filterJson = String.format(
                     "[{\"field\": \"number\", \"operator\": \"start_with\", \"value\": \"%s\"}]", number
@@ -119,8 +125,6 @@ public class AccountsApi {
 
             AccountingResponse apiResponse = response.getBody();
 
-            Thread.sleep(1100); // Respect rate limit
-
             if (apiResponse != null && apiResponse.getItems() != null) {
                 for (Item item : apiResponse.getItems()) {
                     if (item.getNumber().equals(number)) {
@@ -157,7 +161,6 @@ public class AccountsApi {
                     requestEntity,
                     Item.class
             );
-            Thread.sleep(600);
             return response.getBody();
         } catch (Exception e) {
             handleException("createLedgerAccount", url, e);
@@ -196,6 +199,10 @@ public class AccountsApi {
     }
 
     public CategoryResponse getCategoryByUrl(String url, SiteEntity site) {
+        return singleFlight.get(site.getPennylaneToken(), url, () -> fetchCategoryByUrl(url, site));
+    }
+
+    private CategoryResponse fetchCategoryByUrl(String url, SiteEntity site) {
         try {
             ResponseEntity<CategoryResponse> response = restTemplate.exchange(
                     url,
@@ -203,8 +210,6 @@ public class AccountsApi {
                     new HttpEntity<>(headerBuilder(site.getPennylaneToken())),
                     CategoryResponse.class
             );
-            // Pause pour respecter la limite de 2 requêtes par seconde
-            Thread.sleep(600);
             return response.getBody();
         } catch (Exception e) {
             handleException("getCategoryByUrl", url, e);
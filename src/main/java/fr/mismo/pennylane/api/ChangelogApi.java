@@ -0,0 +1,106 @@
+package fr.mismo.pennylane.api;
+
+import fr.mismo.pennylane.dao.entity.SiteEntity;
+import fr.mismo.pennylane.dto.invoice.ChangelogResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Changelogs Pennylane (API v2) des référentiels gardés en mémoire : products, suppliers, customers.
+ */
+@Slf4j
+@Component
+public class ChangelogApi {
+
+    private final RestTemplate restTemplate;
+
+    @Value("${api.url_v2}")
+    private String apiUrlV2;
+
+    @Autowired
+    public ChangelogApi(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    /**
+     * Éléments du référentiel créés, modifiés ou supprimés depuis startDate.
+     *
+     * @param resource nom du référentiel dans l'URL du changelog (ex. "products")
+     * @return null en cas d'erreur, pour que l'appelant ne confonde pas échec et absence de changement
+     */
+    public List<ChangelogResponse.ChangelogItem> listAllChangelogs(SiteEntity site, String resource, OffsetDateTime startDate) {
+        List<ChangelogResponse.ChangelogItem> allChangelogs = new ArrayList<>();
+        String cursor = null;
+        boolean hasMore = true;
+        String url = apiUrlV2 + "changelogs/" + resource + "?limit={limit}&start_date={startDate}";
+
+        try {
+            HttpEntity<?> entity = new HttpEntity<>(headerBuilder(site.getPennylaneToken()));
+
+            while (hasMore) {
+                Map<String, Object> uriVariables = new HashMap<>();
+                uriVariables.put("limit", 1000);
+                uriVariables.put("startDate", startDate.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+                if (cursor != null) {
+                    uriVariables.put("cursor", cursor);
+                }
+
+                ResponseEntity<ChangelogResponse> response = restTemplate.exchange(
+                        cursor != null ? url + "&cursor={cursor}" : url,
+                        HttpMethod.GET,
+                        entity,
+                        ChangelogResponse.class,
+                        uriVariables
+                );
+
+                ChangelogResponse body = response.getBody();
+                if (body == null || body.getItems() == null) break;
+
+                allChangelogs.addAll(body.getItems());
+                hasMore = Boolean.TRUE.equals(body.getHasMore());
+                cursor = body.getNextCursor();
+            }
+        } catch (Exception e) {
+            handleException("listAllChangelogs", url, e);
+            return null;
+        }
+
+        return allChangelogs;
+    }
+
+    private void handleException(String methodName, String url, Exception e) {
+        if (e instanceof IOException) {
+            log.error("Méthode: {}, URL: {}, Erreur d'entrée/sortie: {}", methodName, url, e.getMessage(), e);
+        } else if (e instanceof HttpClientErrorException) {
+            HttpClientErrorException httpException = (HttpClientErrorException) e;
+            log.error("Méthode: {}, URL: {}, Erreur HTTP: {} - {}", methodName, url, httpException.getStatusCode(), httpException.getStatusText(), e);
+        } else {
+            log.error("Méthode: {}, URL: {}, Erreur lors de l'appel à l'API: {}", methodName, url, e.getMessage(), e);
+        }
+    }
+
+    private HttpHeaders headerBuilder(String token) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", "Bearer " + token);
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+        return headers;
+    }
+}
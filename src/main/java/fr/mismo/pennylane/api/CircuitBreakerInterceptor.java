@@ -0,0 +1,51 @@
+package fr.mismo.pennylane.api;
+
+import fr.mismo.pennylane.util.CircuitBreakerRegistry;
+import fr.mismo.pennylane.util.CircuitOpenException;
+import fr.mismo.pennylane.util.EndpointFamily;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Refuse immédiatement les appels Pennylane d'une famille dont le disjoncteur est ouvert pour ce jeton,
+ * et signale au disjoncteur le résultat final des autres (après rejeux éventuels).
+ * Seuls les erreurs réseau et les 5xx comptent comme des échecs : un 4xx prouve que Pennylane répond.
+ */
+@Component
+public class CircuitBreakerInterceptor implements ClientHttpRequestInterceptor {
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakers;
+
+    @Override
+    public ClientHttpResponse intercept(final HttpRequest request, final byte[] body, final ClientHttpRequestExecution execution) throws IOException {
+        String key = RateLimitInterceptor.resolveKey(request);
+        EndpointFamily family = EndpointFamily.of(request.getURI());
+
+        if (!circuitBreakers.allowRequest(key, family)) {
+            throw new CircuitOpenException("Disjoncteur " + family + " ouvert, appel non émis : "
+                    + request.getMethod() + " " + request.getURI().getPath());
+        }
+
+        ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+        } catch (IOException | RuntimeException e) {
+            circuitBreakers.recordFailure(key, family);
+            throw e;
+        }
+
+        if (response.getStatusCode().is5xxServerError()) {
+            circuitBreakers.recordFailure(key, family);
+        } else {
+            circuitBreakers.recordSuccess(key, family);
+        }
+        return response;
+    }
+}
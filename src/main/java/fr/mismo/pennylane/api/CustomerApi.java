@@ -3,6 +3,7 @@ package fr.mismo.pennylane.api;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.mismo.pennylane.dao.entity.SiteEntity;
 import fr.mismo.pennylane.dto.customer.Customer;
+import fr.mismo.pennylane.dto.customer.CustomerListResponse;
 import fr.mismo.pennylane.dto.customer.ResponseCustomer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,8 +18,11 @@ import org.springframework.web.util.UriComponentsBuilder;
 import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Slf4j
@@ -57,8 +61,6 @@ public class CustomerApi {
                     requestEntity,
                     Customer.class
             );
-            // Pause pour respecter la limite de 2 requêtes par seconde
-            Thread.sleep(600);
 
             return response.getBody();
         } catch (Exception e) {
@@ -79,9 +81,6 @@ public class CustomerApi {
                     ResponseCustomer.class
             );
 
-            // Pause pour respecter la limite de 2 requêtes par seconde
-            Thread.sleep(1100);
-
             ResponseCustomer apiResponse = response.getBody();
             if (apiResponse != null) {
                 return apiResponse.getItems();
@@ -95,40 +94,81 @@ public class CustomerApi {
         }
     }*/
 
-    public ResponseCustomer findCustomerByLedgerAccount(SiteEntity site, Long ledgerAccountId) {
-        try {
-            // Construction du filtre JSON pour ledger_account_id
-            String filterJson = String.format(
-                    "[{\"field\": \"ledger_account_id\", \"operator\": \"eq\", \"value\": \"%s\"}]",
-                    ledgerAccountId.toString()
-            );
-
-            String url = apiUrl + "customers?filter={filter}&sort=-id";
-
-            // Appel à l'API avec paramètre filter
-            ResponseEntity<ResponseCustomer> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    new HttpEntity<>(headerBuilder(site.getPennylaneToken())),
-                    ResponseCustomer.class,
-                    filterJson  // Passé directement comme variable URI
-            );
-
-            Thread.sleep(1100); // Respect limite de requêtes
+    /**
+     * Tous les clients du site, par pages de 100.
+     *
+     * @return null en cas d'erreur, pour que l'appelant ne garde pas un annuaire incomplet
+     */
+    public List<Customer> listAllCustomers(SiteEntity site) {
+        List<Customer> allCustomers = new ArrayList<>();
+        String cursor = null;
+        boolean hasMore = true;
+        String url = apiUrlV2 + "customers?limit={limit}";
 
-            ResponseCustomer apiResponse = response.getBody();
-            if (apiResponse != null && !apiResponse.getItems().isEmpty()) {
-                return apiResponse;
-            } else {
-                log.warn("Aucun client trouvé pour ledger_account_id: {}", ledgerAccountId);
-                return null;
+        try {
+            HttpEntity<?> entity = new HttpEntity<>(headerBuilder(site.getPennylaneToken()));
+
+            while (hasMore) {
+                Map<String, Object> uriVariables = new HashMap<>();
+                uriVariables.put("limit", 100);
+                if (cursor != null) {
+                    uriVariables.put("cursor", cursor);
+                }
+
+                ResponseEntity<CustomerListResponse> response = restTemplate.exchange(
+                        cursor != null ? url + "&cursor={cursor}" : url,
+                        HttpMethod.GET,
+                        entity,
+                        CustomerListResponse.class,
+                        uriVariables
+                );
+
+                CustomerListResponse body = response.getBody();
+                if (body == null || body.getItems() == null) break;
+
+                allCustomers.addAll(body.getItems());
+                hasMore = body.isHasMore();
+                cursor = body.getNextCursor();
             }
         } catch (Exception e) {
+            handleException("listAllCustomers", url, e);
             return null;
         }
-    }
 
+        return allCustomers;
+    }
 
+    /**
+     * Clients rattachés à ce compte comptable, lus par filtre.
+     * Les erreurs ne sont pas interceptées : un échec pris pour une absence ferait recréer le client.
+     *
+     * @return les clients trouvés, ou null si aucun client n'est rattaché au compte
+     */
+    public ResponseCustomer findCustomerByLedgerAccount(SiteEntity site, Long ledgerAccountId) {
+        // Construction du filtre JSON pour ledger_account_id
+        String filterJson = String.format(
+                "[{\"field\": \"ledger_account_id\", \"operator\": \"eq\", \"value\": \"%s\"}]",
+                ledgerAccountId.toString()
+        );
+
+        String url = apiUrl + "customers?filter={filter}&sort=-id";
+
+        // Appel à l'API avec paramètre filter
+        ResponseEntity<ResponseCustomer> response = restTemplate.exchange(
+                url,
+                HttpMethod.GET,
+                new HttpEntity<>(headerBuilder(site.getPennylaneToken())),
+                ResponseCustomer.class,
+                filterJson  // Passé directement comme variable URI
+        );
+
+        ResponseCustomer apiResponse = response.getBody();
+        if (apiResponse != null && apiResponse.getItems() != null && !apiResponse.getItems().isEmpty()) {
+            return apiResponse;
+        }
+        log.warn("Aucun client trouvé pour ledger_account_id: {}", ledgerAccountId);
+        return null;
+    }
 
     public Customer retrieveCustomer(String customerId, SiteEntity site) {
         String url = apiUrl + "customers/" + customerId;
@@ -141,9 +181,6 @@ public class CustomerApi {
                     Customer.class
             );
 
-            // Pause pour respecter la limite de 2 requêtes par seconde
-            Thread.sleep(600);
-
             return response.getBody();
         } catch (HttpStatusCodeException e) {
             if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
@@ -184,9 +221,6 @@ public class CustomerApi {
             );
 
 
-            // Pause pour respecter la limite de 2 requêtes par seconde
-            Thread.sleep(600);
-
             return response.getBody();
         } catch (Exception e) {
             handleException("updateCustomer", url, e);
@@ -0,0 +1,47 @@
+package fr.mismo.pennylane.api;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Expose l'occupation du pool de connexions HTTP Pennylane (dashboard des logs).
+ */
+@Component
+public class HttpPoolMonitor {
+
+    @Autowired
+    private PoolingHttpClientConnectionManager pennylaneConnectionManager;
+
+    /**
+     * Statistiques globales du pool : connexions utilisées, disponibles, en attente et maximum.
+     */
+    public Map<String, Integer> getTotalStats() {
+        return toMap(pennylaneConnectionManager.getTotalStats());
+    }
+
+    /**
+     * Statistiques par route (hôte cible).
+     */
+    public Map<String, Map<String, Integer>> getRouteStats() {
+        Map<String, Map<String, Integer>> stats = new LinkedHashMap<>();
+        for (HttpRoute route : pennylaneConnectionManager.getRoutes()) {
+            stats.put(route.getTargetHost().toHostString(), toMap(pennylaneConnectionManager.getStats(route)));
+        }
+        return stats;
+    }
+
+    private static Map<String, Integer> toMap(PoolStats poolStats) {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        map.put("leased", poolStats.getLeased());
+        map.put("available", poolStats.getAvailable());
+        map.put("pending", poolStats.getPending());
+        map.put("max", poolStats.getMax());
+        return map;
+    }
+}
@@ -31,6 +31,9 @@ public class InvoiceApi {
     @Value("${api.url_v1}")
     private String apiUrl;
 
+    // Ids par appel filtré (id in [...]), au plus une page de résultats
+    private static final int SUPPLIER_INVOICE_IDS_PAGE = 100;
+
     @Autowired
     public InvoiceApi(RestTemplate restTemplate, ObjectMapper objectMapper) {
         this.restTemplate = restTemplate;
@@ -117,8 +120,6 @@ public class InvoiceApi {
                     String.class
             );
 
-            Thread.sleep(600);
-
             log.trace("Response Status: {}", response.getStatusCode());
             log.trace("Response Body: {}", response.getBody());
 
@@ -162,8 +163,6 @@ public class InvoiceApi {
                         TransactionListResponse.class
                 );
 
-                Thread.sleep(1100); // Respect du rate limit
-
                 TransactionListResponse body = response.getBody();
                 if (body == null) break;
 
@@ -198,8 +197,6 @@ public class InvoiceApi {
                     String.class
             );
 
-            Thread.sleep(600);
-
             log.debug("Response Status: {}", response.getStatusCode());
             log.debug("Response Body: {}", response.getBody());
 
@@ -287,8 +284,6 @@ public class InvoiceApi {
                         CategoryListResponse.class
                 );
 
-                Thread.sleep(1100); // Respect des limites de débit
-
                 CategoryListResponse body = response.getBody();
                 if (body == null) break;
 
@@ -331,10 +326,6 @@ public class InvoiceApi {
         log.debug("📤 Appel API listAllSupplierInvoices avec paramètres: site={}, categoryIds={}, syncDateTime={}",
                 site, categoryIds, syncDateTime);
 
-        List<SupplierInvoiceResponse.SupplierInvoiceItem> allInvoices = new ArrayList<>();
-        String cursor = null;
-        boolean hasMore = true;
-
         // Préparation du filtre JSON si nécessaire
         List<String> filterParts = new ArrayList<>();
 
@@ -352,6 +343,51 @@ public class InvoiceApi {
 
         String filterJson = filterParts.isEmpty() ? null : "[" + String.join(",", filterParts) + "]";
 
+        return listSupplierInvoices(site, filterJson);
+    }
+
+    /**
+     * Factures d'achat de ces ids (changelog), lues par la liste filtrée sur l'id par pages de
+     * SUPPLIER_INVOICE_IDS_PAGE ids : un appel par page au lieu d'un GET par facture.
+     *
+     * @return les factures trouvées (hors catégories filtrées), ou null en cas d'erreur
+     */
+    public List<SupplierInvoiceResponse.SupplierInvoiceItem> listSupplierInvoicesByIds(
+            SiteEntity site,
+            Collection<Long> invoiceIds,
+            List<Long> categoryIds
+    ) {
+        List<Long> ids = invoiceIds.stream().filter(Objects::nonNull).distinct().toList();
+        List<SupplierInvoiceResponse.SupplierInvoiceItem> allInvoices = new ArrayList<>();
+
+        for (int i = 0; i < ids.size(); i += SUPPLIER_INVOICE_IDS_PAGE) {
+            List<Long> page = ids.subList(i, Math.min(ids.size(), i + SUPPLIER_INVOICE_IDS_PAGE));
+
+            List<String> filterParts = new ArrayList<>();
+            filterParts.add(String.format("{\"field\": \"id\", \"operator\": \"in\", \"value\": %s}",
+                    page.stream().map(String::valueOf).collect(Collectors.joining(",", "[", "]"))));
+            if (categoryIds != null && !categoryIds.isEmpty()) {
+                filterParts.add(String.format("{\"field\": \"category_id\", \"operator\": \"in\", \"value\": %s}",
+                        categoryIds.stream().map(String::valueOf).collect(Collectors.joining(",", "[", "]"))));
+            }
+
+            List<SupplierInvoiceResponse.SupplierInvoiceItem> invoices =
+                    listSupplierInvoices(site, "[" + String.join(",", filterParts) + "]");
+            if (invoices == null) {
+                return null;
+            }
+            allInvoices.addAll(invoices);
+        }
+
+        log.debug("Site {} - {} facture(s) d'achat lue(s) pour {} id(s)", site.getCode(), allInvoices.size(), ids.size());
+        return allInvoices;
+    }
+
+    private List<SupplierInvoiceResponse.SupplierInvoiceItem> listSupplierInvoices(SiteEntity site, String filterJson) {
+        List<SupplierInvoiceResponse.SupplierInvoiceItem> allInvoices = new ArrayList<>();
+        String cursor = null;
+        boolean hasMore = true;
+
         try {
             // Préparation des headers
             HttpHeaders headers = new HttpHeaders();
@@ -397,8 +433,6 @@ public class InvoiceApi {
                 hasMore = responseBody.isHasMore();
                 cursor = responseBody.getNextCursor();
             }
-            // Pause pour respecter la limite de 2 requêtes par seconde
-            Thread.sleep(600);
         } catch (Exception e) {
             return null;
         }
@@ -461,9 +495,6 @@ public class InvoiceApi {
                 allChangelogs.addAll(body.getItems());
                 hasMore = Boolean.TRUE.equals(body.getHasMore());
                 cursor = body.getNextCursor();
-
-                // Respect de la limite d'appel
-                Thread.sleep(600);
             }
 
         } catch (Exception e) {
@@ -491,7 +522,6 @@ public class InvoiceApi {
                     SupplierInvoiceResponse.class
             );
 
-            Thread.sleep(1100); // Respect des limites de débit
             return response.getBody();
         } catch (Exception e) {
             return null;
@@ -54,9 +54,6 @@ public class ProductApi {
                     Product.class
             );
 
-            // Pause pour respecter la limite de 2 requêtes par seconde
-            Thread.sleep(600);
-
             Product apiResponse = response.getBody();
             return apiResponse != null ? apiResponse : null;
         } catch (Exception e) {
@@ -65,7 +62,12 @@ public class ProductApi {
         }
     }
 
-      public List<Product> listAllProducts(SiteEntity site) {
+    /**
+     * Tous les produits du site, par pages de 100.
+     *
+     * @return null si une page est en erreur, pour que l'appelant ne garde pas un catalogue incomplet
+     */
+    public List<Product> listAllProducts(SiteEntity site) {
         String baseUrl = apiUrlV2 + "products";
         List<Product> allProducts = new ArrayList<>();
         String cursor = null;
@@ -75,7 +77,10 @@ public class ProductApi {
             String url = buildUrl(baseUrl, cursor);
             ResponseProduct response = getProductPage(url, site);
 
-            if (response == null) break;
+            if (response == null) {
+                return null;
+            }
+            if (response.getItems() == null) break;
 
             allProducts.addAll(response.getItems());
             hasMore = response.isHasMore();
@@ -84,6 +89,31 @@ public class ProductApi {
         return allProducts;
     }
 
+    /**
+     * Produit de cette référence externe (n° produit Athénéo), lu par filtre.
+     * Les erreurs ne sont pas interceptées : un échec pris pour une absence ferait recréer le produit.
+     *
+     * @return le produit, ou null s'il n'existe pas dans Pennylane
+     */
+    public Product findProductByExternalReference(SiteEntity site, String externalReference) {
+        String filterJson = String.format(
+                "[{\"field\": \"external_reference\", \"operator\": \"eq\", \"value\": \"%s\"}]",
+                externalReference
+        );
+        String url = apiUrlV2 + "products?filter={filter}";
+
+        ResponseEntity<ResponseProduct> response = restTemplate.exchange(
+                url,
+                HttpMethod.GET,
+                new HttpEntity<>(headerBuilder(site.getPennylaneToken())),
+                ResponseProduct.class,
+                filterJson
+        );
+
+        ResponseProduct body = response.getBody();
+        return body != null && body.getItems() != null && !body.getItems().isEmpty() ? body.getItems().getFirst() : null;
+    }
+
     private String buildUrl(String baseUrl, String cursor) {
         String url = baseUrl + "?limit=100";
         if (cursor != null && !cursor.isEmpty()) {
@@ -102,7 +132,6 @@ public class ProductApi {
                     ResponseProduct.class
             );
 
-            Thread.sleep(1100); // Respect des limites de débit
             return response.getBody();
         } catch (Exception e) {
             handleException("getProductPage", url, e);
@@ -121,9 +150,6 @@ public class ProductApi {
                     Product.class
             );
 
-            // Pause pour respecter la limite de 2 requêtes par seconde
-            Thread.sleep(600);
-
             Product apiResponse = response.getBody();
             return apiResponse != null ? apiResponse : null;
         } catch (HttpClientErrorException e) {
@@ -155,9 +181,6 @@ public class ProductApi {
                     Product.class
             );
 
-            // Pause pour respecter la limite de 2 requêtes par seconde
-            Thread.sleep(600);
-
             Product apiResponse = response.getBody();
             return apiResponse != null ? apiResponse : null;
         } catch (Exception e) {
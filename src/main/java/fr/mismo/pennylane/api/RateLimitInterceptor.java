@@ -0,0 +1,42 @@
+package fr.mismo.pennylane.api;
+
+import fr.mismo.pennylane.util.RateLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Cadence tous les appels Pennylane via le RateLimiter, par jeton d'API (en-tête Authorization).
+ */
+@Component
+public class RateLimitInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Override
+    public ClientHttpResponse intercept(final HttpRequest request, final byte[] body, final ClientHttpRequestExecution execution) throws IOException {
+        String key = resolveKey(request);
+        rateLimiter.acquire(key);
+
+        ClientHttpResponse response = execution.execute(request, body);
+        rateLimiter.updateFromResponse(key, response.getHeaders(), response.getStatusCode().value());
+        return response;
+    }
+
+    static String resolveKey(HttpRequest request) {
+        String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+            return authorization.substring(BEARER_PREFIX.length());
+        }
+        return request.getURI().getHost();
+    }
+}
@@ -0,0 +1,83 @@
+package fr.mismo.pennylane.api;
+
+import fr.mismo.pennylane.util.RateLimiter;
+import fr.mismo.pennylane.util.RetryPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Rejoue les appels Pennylane en échec transitoire (429, 5xx, erreurs réseau) selon la RetryPolicy.
+ *
+ * Doit être le dernier intercepteur du RestTemplate : chaque nouvel essai ré-exécute
+ * directement la requête HTTP, après avoir repris un jeton au RateLimiter.
+ */
+@Component
+@Slf4j
+public class RetryInterceptor implements ClientHttpRequestInterceptor {
+
+    @Autowired
+    private RetryPolicy retryPolicy;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Override
+    public ClientHttpResponse intercept(final HttpRequest request, final byte[] body, final ClientHttpRequestExecution execution) throws IOException {
+        String key = RateLimitInterceptor.resolveKey(request);
+        int attempt = 0;
+
+        while (true) {
+            ClientHttpResponse response;
+            try {
+                response = execution.execute(request, body);
+            } catch (IOException e) {
+                if (attempt >= retryPolicy.getMaxAttempts() || !retryPolicy.isRetryable(request.getMethod(), e)) {
+                    if (attempt > 0) retryPolicy.recordOutcome(false);
+                    throw e;
+                }
+                attempt++;
+                long delay = retryPolicy.backoffDelay(attempt, null);
+                log.warn("{} {} : erreur réseau ({}), nouvel essai {}/{} dans {} ms",
+                        request.getMethod(), request.getURI(), e.getMessage(), attempt, retryPolicy.getMaxAttempts(), delay);
+                retryPolicy.recordRetry(null);
+                waitBeforeRetry(delay, key, e);
+                continue;
+            }
+
+            int status = response.getStatusCode().value();
+            if (attempt < retryPolicy.getMaxAttempts() && retryPolicy.isRetryable(request.getMethod(), status)) {
+                HttpHeaders headers = response.getHeaders();
+                rateLimiter.updateFromResponse(key, headers, status);
+                response.close();
+
+                attempt++;
+                long delay = retryPolicy.backoffDelay(attempt, RateLimiter.parseRetryAfterMs(headers.getFirst(HttpHeaders.RETRY_AFTER)));
+                log.warn("{} {} : HTTP {}, nouvel essai {}/{} dans {} ms",
+                        request.getMethod(), request.getURI(), status, attempt, retryPolicy.getMaxAttempts(), delay);
+                retryPolicy.recordRetry(status);
+                waitBeforeRetry(delay, key, null);
+                continue;
+            }
+
+            if (attempt > 0) {
+                retryPolicy.recordOutcome(!response.getStatusCode().isError());
+            }
+            return response;
+        }
+    }
+
+    private void waitBeforeRetry(long delay, String key, IOException cause) throws IOException {
+        if (!retryPolicy.pause(delay)) {
+            throw cause != null ? cause : new IOException("Nouvel essai interrompu");
+        }
+        rateLimiter.acquire(key);
+    }
+}
@@ -4,6 +4,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.mismo.pennylane.dao.entity.SiteEntity;
 import fr.mismo.pennylane.dto.supplier.ResponseSupplier;
 import fr.mismo.pennylane.dto.supplier.Supplier;
+import fr.mismo.pennylane.dto.supplier.SupplierListResponse;
+import fr.mismo.pennylane.util.SingleFlight;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -15,8 +17,11 @@ import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Component
@@ -24,6 +29,7 @@ public class SupplierApi {
 
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final SingleFlight singleFlight;
 
     @Value("${api.url_v1}")
     private String apiUrl;
@@ -32,9 +38,10 @@ public class SupplierApi {
     private String apiUrlV2;
 
     @Autowired
-    public SupplierApi(RestTemplate restTemplate, ObjectMapper objectMapper) {
+    public SupplierApi(RestTemplate restTemplate, ObjectMapper objectMapper, SingleFlight singleFlight) {
         this.restTemplate = restTemplate;
         this.objectMapper = objectMapper;
+        this.singleFlight = singleFlight;
     }
 
     public Supplier createSupplier(Supplier supplier, SiteEntity site) {
@@ -50,9 +57,6 @@ public class SupplierApi {
                     Supplier.class
             );
 
-            // Pause pour respecter la limite de 2 requêtes par seconde
-            Thread.sleep(600);
-
             return response.getBody();
         } catch (Exception e) {
             handleException("createSupplier", url, e);
@@ -61,6 +65,19 @@ public class SupplierApi {
     }
     public Supplier retrieveSupplier(String supplierId, SiteEntity site) {
         String url = apiUrlV2 + "suppliers/" + supplierId;
+        return singleFlight.get(site.getPennylaneToken(), url, () -> fetchSupplier(url, site));
+    }
+
+    /**
+     * Relit le fournisseur dans Pennylane sans passer par la lecture mémorisée du passage
+     * (fournisseur modifié entre-temps, cf. changelog).
+     */
+    public Supplier rereadSupplier(String supplierId, SiteEntity site) {
+        singleFlight.forget(site.getPennylaneToken(), apiUrlV2 + "suppliers/" + supplierId);
+        return retrieveSupplier(supplierId, site);
+    }
+
+    private Supplier fetchSupplier(String url, SiteEntity site) {
         try {
             ResponseEntity<Supplier> response = restTemplate.exchange(
                     url,
@@ -69,9 +86,6 @@ public class SupplierApi {
                     Supplier.class
             );
 
-            // Pause pour respecter la limite de 2 requêtes par seconde
-            Thread.sleep(600);
-
             return response.getBody();
         } catch (HttpStatusCodeException e) {
             if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
@@ -86,6 +100,50 @@ public class SupplierApi {
         }
     }
 
+    /**
+     * Tous les fournisseurs du site, par pages de 100.
+     *
+     * @return null en cas d'erreur, pour que l'appelant ne garde pas un annuaire incomplet
+     */
+    public List<Supplier> listAllSuppliers(SiteEntity site) {
+        List<Supplier> allSuppliers = new ArrayList<>();
+        String cursor = null;
+        boolean hasMore = true;
+        String url = apiUrlV2 + "suppliers?limit={limit}";
+
+        try {
+            HttpEntity<?> entity = new HttpEntity<>(createHeaders(site.getPennylaneToken()));
+
+            while (hasMore) {
+                Map<String, Object> uriVariables = new HashMap<>();
+                uriVariables.put("limit", 100);
+                if (cursor != null) {
+                    uriVariables.put("cursor", cursor);
+                }
+
+                ResponseEntity<SupplierListResponse> response = restTemplate.exchange(
+                        cursor != null ? url + "&cursor={cursor}" : url,
+                        HttpMethod.GET,
+                        entity,
+                        SupplierListResponse.class,
+                        uriVariables
+                );
+
+                SupplierListResponse body = response.getBody();
+                if (body == null || body.getItems() == null) break;
+
+                allSuppliers.addAll(body.getItems());
+                hasMore = body.isHasMore();
+                cursor = body.getNextCursor();
+            }
+        } catch (Exception e) {
+            handleException("listAllSuppliers", url, e);
+            return null;
+        }
+
+        return allSuppliers;
+    }
+
     private void handleException(String methodName, String url, Exception e) {
         if (e instanceof IOException) {
             log.error("Méthode: {}, URL: {}, Erreur d'entrée/sortie: {}", methodName, url, e.getMessage(), e);
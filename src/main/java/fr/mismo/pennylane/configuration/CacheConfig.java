@@ -0,0 +1,89 @@
+package fr.mismo.pennylane.configuration;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import fr.mismo.pennylane.api.InvoiceApi;
+import fr.mismo.pennylane.dao.entity.SiteEntity;
+import fr.mismo.pennylane.dao.repository.SiteRepository;
+import fr.mismo.pennylane.dto.Category;
+import fr.mismo.pennylane.settings.ReferentialCacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@Slf4j
+public class CacheConfig {
+
+    public static final String CATEGORIES_BY_SITE = "categoriesBySite";
+
+    /**
+     * Caches des référentiels Pennylane : durée de vie et taille bornées, statistiques activées.
+     *
+     * Les caches qui disposent d'un chargeur sont rafraîchis par anticipation : passé refreshAfterMs,
+     * la lecture renvoie encore l'ancienne valeur et le rechargement part en tâche de fond, le scheduler
+     * n'attend donc jamais un rafraîchissement. Un rechargement en échec conserve l'ancienne valeur.
+     */
+    @Bean
+    public CacheManager cacheManager(ReferentialCacheProperties properties,
+                                     ObjectProvider<InvoiceApi> invoiceApi,
+                                     ObjectProvider<SiteRepository> siteRepository) {
+        CaffeineCacheManager manager = new CaffeineCacheManager();
+        manager.setCaffeine(builder(properties.getDefaults()));
+
+        ReferentialCacheProperties.CacheSpec categories = properties.spec(CATEGORIES_BY_SITE);
+        manager.registerCustomCache(CATEGORIES_BY_SITE, builder(categories)
+                .refreshAfterWrite(categories.getRefreshAfterMs(), TimeUnit.MILLISECONDS)
+                .build(categoriesLoader(invoiceApi, siteRepository)));
+
+        return manager;
+    }
+
+    private Caffeine<Object, Object> builder(ReferentialCacheProperties.CacheSpec spec) {
+        return Caffeine.newBuilder()
+                .expireAfterWrite(spec.getTtlMs(), TimeUnit.MILLISECONDS)
+                .maximumSize(spec.getMaxSize())
+                .recordStats();
+    }
+
+    /**
+     * Clé du cache : id du site (voir CategoryCacheService).
+     *
+     * Le premier chargement est laissé à CategoryCacheService.getCategories : load() rend null, Spring
+     * exécute alors la méthode @Cacheable, qui ne met pas en cache une liste vide (erreur de lecture).
+     * Seul le rafraîchissement par anticipation passe par reload() : un échec y est levé pour que
+     * Caffeine conserve l'ancienne valeur.
+     */
+    private CacheLoader<Object, Object> categoriesLoader(ObjectProvider<InvoiceApi> invoiceApi,
+                                                         ObjectProvider<SiteRepository> siteRepository) {
+        return new CacheLoader<>() {
+            @Override
+            public Object load(Object siteId) {
+                return null;
+            }
+
+            @Override
+            public Object reload(Object siteId, Object oldValue) {
+                SiteEntity site = siteRepository.getObject().findFirstById((Integer) siteId).orElse(null);
+                if (site == null) {
+                    // Site supprimé : l'entrée est retirée du cache
+                    return null;
+                }
+                List<Category> categories = invoiceApi.getObject().listAllCategories(site);
+                if (categories.isEmpty()) {
+                    // listAllCategories rend une liste vide en cas d'erreur : on garde l'ancienne valeur
+                    log.warn("Rafraîchissement des catégories du site {} en échec, ancienne liste conservée", site.getCode());
+                    throw new IllegalStateException("Aucune catégorie récupérée pour le site " + site.getCode());
+                }
+                log.debug("Catégories du site {} rafraîchies : {}", site.getCode(), categories.size());
+                return categories;
+            }
+        };
+    }
+}
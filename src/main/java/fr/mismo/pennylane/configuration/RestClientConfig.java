@@ -1,28 +1,95 @@
 package fr.mismo.pennylane.configuration;
 
+import fr.mismo.pennylane.api.CircuitBreakerInterceptor;
+import fr.mismo.pennylane.api.RateLimitInterceptor;
 import fr.mismo.pennylane.api.RequestInterceptor;
+import fr.mismo.pennylane.api.RetryInterceptor;
+import fr.mismo.pennylane.settings.HttpClientProperties;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class RestClientConfig {
 
+    /**
+     * Pool de connexions partagé par toutes les classes *Api : les connexions TLS vers Pennylane
+     * sont conservées (keep-alive) et réutilisées au lieu d'être renégociées à chaque appel.
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        RestTemplate restTemplate = new RestTemplate();
+    public PoolingHttpClientConnectionManager pennylaneConnectionManager(HttpClientProperties properties) {
+        HttpClientProperties.HttpPool pool = properties.getPool();
+        HttpClientProperties.HttpTimeouts timeouts = properties.getTimeouts();
+
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(timeouts.getConnectTimeout()))
+                .setSocketTimeout(Timeout.ofMilliseconds(timeouts.getSocketTimeout()))
+                .setValidateAfterInactivity(TimeValue.ofMilliseconds(pool.getValidateAfterInactivity()))
+                .build();
+
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(pool.getMaxTotal())
+                .setMaxConnPerRoute(pool.getMaxPerRoute())
+                .setDefaultConnectionConfig(connectionConfig)
+                .build();
+    }
+
+    @Bean
+    public CloseableHttpClient pennylaneHttpClient(PoolingHttpClientConnectionManager pennylaneConnectionManager,
+                                                   HttpClientProperties properties) {
+        HttpClientProperties.HttpPool pool = properties.getPool();
+        HttpClientProperties.HttpTimeouts timeouts = properties.getTimeouts();
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(timeouts.getConnectionRequestTimeout()))
+                .setResponseTimeout(Timeout.ofMilliseconds(timeouts.getResponseTimeout()))
+                // Durée de conservation si le serveur n'envoie pas d'en-tête Keep-Alive
+                .setDefaultKeepAlive(pool.getKeepAlive(), TimeUnit.MILLISECONDS)
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(pennylaneConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(pool.getIdleEviction()))
+                .build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(CloseableHttpClient pennylaneHttpClient,
+                                     CircuitBreakerInterceptor circuitBreakerInterceptor,
+                                     RateLimitInterceptor rateLimitInterceptor,
+                                     RequestInterceptor requestInterceptor,
+                                     RetryInterceptor retryInterceptor) {
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(pennylaneHttpClient));
 
         List<ClientHttpRequestInterceptor> interceptors
                 = restTemplate.getInterceptors();
         if (CollectionUtils.isEmpty(interceptors)) {
             interceptors = new ArrayList<>();
         }
-        interceptors.add(new RequestInterceptor());
+        // Disjoncteur en premier : un appel refusé ne consomme pas de quota
+        interceptors.add(circuitBreakerInterceptor);
+        // Cadencement ensuite : la durée tracée par RequestInterceptor exclut l'attente de quota
+        interceptors.add(rateLimitInterceptor);
+        interceptors.add(requestInterceptor);
+        // Rejeu en dernier : il ré-exécute directement la requête HTTP
+        interceptors.add(retryInterceptor);
         restTemplate.setInterceptors(interceptors);
         return restTemplate;
     }
@@ -2,6 +2,7 @@ package fr.mismo.pennylane.controller;
 
 import fr.mismo.pennylane.dto.LogDTO;
 import fr.mismo.pennylane.service.LogsService;
+import fr.mismo.pennylane.service.SyncWatermarkService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -12,6 +13,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
@@ -26,6 +28,9 @@ public class LogController {
     @Autowired
     private LogsService logService;
 
+    @Autowired
+    private SyncWatermarkService syncWatermarkService;
+
     // Page d'accueil - Dashboard
     @GetMapping("/dashboard")
     public String dashboard(Model model) {
@@ -34,6 +39,13 @@ public class LogController {
         return "logs/dashboard";
     }
 
+    // Resynchronisation complète des factures d'achat au prochain passage (un site, ou tous sans siteId)
+    @PostMapping("/synchro/complete")
+    public String synchroComplete(@RequestParam(required = false) Integer siteId) {
+        syncWatermarkService.demanderSynchroComplete(SyncWatermarkService.SYNC_PURCHASES, siteId);
+        return "redirect:/logs/dashboard";
+    }
+
     // Page de recherche de logs
     @GetMapping("/recherche")
     public String recherche(
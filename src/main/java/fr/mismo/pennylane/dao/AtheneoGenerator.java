@@ -3,9 +3,11 @@ package fr.mismo.pennylane.dao;
 import fr.mismo.pennylane.dao.entity.Identifiable;
 import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.config.spi.ConfigurationService;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.id.Configurable;
 import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.jdbc.AbstractReturningWork;
 import org.hibernate.procedure.ProcedureCall;
 import org.hibernate.service.ServiceRegistry;
 import org.hibernate.type.Type;
@@ -14,8 +16,30 @@ import org.springframework.stereotype.Component;
 
 import jakarta.persistence.ParameterMode;
 import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
 
+/**
+ * Identifiants Athénéo tirés par sp_COMPTEUR.
+ *
+ * Par défaut un appel par identifiant (PAS = 1), dans la transaction de l'insertion.
+ * Avec un bloc > 1 (spring.jpa.properties.atheneo.compteur.blocs.&lt;COMPTEUR&gt;), un seul appel
+ * réserve PAS identifiants, dans une transaction à part validée immédiatement : les identifiants
+ * sont ensuite distribués depuis la mémoire, sans verrou, à tous les threads. Vérifier d'abord
+ * quelle valeur sp_COMPTEUR renvoie pour PAS > 1 (atheneo.compteur.retour) : une erreur fait
+ * distribuer des identifiants déjà tirés. Un bloc entamé est
+ * perdu à l'arrêt (trous dans la numérotation) et les identifiants ne suivent plus l'ordre des
+ * insertions entre instances ; les procédures qui tirent le même compteur restent compatibles.
+ */
 @Component
 @Slf4j
 public class AtheneoGenerator implements IdentifierGenerator, Configurable {
@@ -27,7 +51,40 @@ public class AtheneoGenerator implements IdentifierGenerator, Configurable {
     private static final String PAS_PARAM = "PAS";
     private static final String CHAMP_PARAM = "CHAMP";
     public static final String IDENTIFIER = "identifier";
+
+    // Taille de bloc par compteur, et valeur renvoyée par sp_COMPTEUR pour un PAS > 1
+    public static final String BLOCS_SETTING = "atheneo.compteur.blocs.";
+    public static final String RETOUR_SETTING = "atheneo.compteur.retour";
+
+    private static final String RESERVER_BLOC = "SET NOCOUNT ON; DECLARE @COMPTEUR INT; "
+            + "EXEC sp_COMPTEUR @CHAMP = ?, @PAS = ?, @COMPTEUR = @COMPTEUR OUTPUT; "
+            + "SELECT @COMPTEUR";
+
+    /**
+     * Valeur renvoyée par sp_COMPTEUR quand PAS > 1 : le dernier identifiant réservé
+     * (valeur du compteur après incrément) ou le premier.
+     */
+    public enum Retour { DERNIER, PREMIER }
+
+    // Identifiants [next, last] restant à distribuer
+    record Bloc(AtomicLong next, long last) {
+        static Bloc vide() {
+            return new Bloc(new AtomicLong(1), 0);
+        }
+    }
+
+    // Bloc en cours d'un compteur et verrou de sa réservation
+    private static final class Reserve {
+        private final AtomicReference<Bloc> bloc = new AtomicReference<>(Bloc.vide());
+        private final ReentrantLock lock = new ReentrantLock();
+    }
+
+    // Partagés par toutes les entités d'un même compteur
+    private static final Map<String, Reserve> RESERVES = new ConcurrentHashMap<>();
+
     private String compteur;
+    private int bloc = 1;
+    private Retour retour = Retour.DERNIER;
 
     @Override
     public Serializable generate(final SharedSessionContractImplementor session, final Object obj) {
@@ -40,6 +97,9 @@ public class AtheneoGenerator implements IdentifierGenerator, Configurable {
 
         log.trace("Génération d'un identifiant pour le compteur {}", compteur);
 
+        if (bloc > 1) {
+            return nextFromBloc(() -> appelerCompteur(session));
+        }
 
         final ProcedureCall call = session.createStoredProcedureCall("sp_COMPTEUR");
         call.registerParameter(CHAMP_PARAM, String.class, ParameterMode.IN);
@@ -53,8 +113,75 @@ public class AtheneoGenerator implements IdentifierGenerator, Configurable {
         return (Integer) call.getOutputParameterValue(COMPTEUR_PARAM);
     }
 
+    /**
+     * @param spCompteur appel de sp_COMPTEUR avec PAS = bloc, fait seulement quand le bloc en cours est épuisé
+     */
+    Integer nextFromBloc(final IntSupplier spCompteur) {
+        Reserve reserve = RESERVES.computeIfAbsent(compteur, k -> new Reserve());
+        while (true) {
+            Bloc courant = reserve.bloc.get();
+            long id = courant.next().getAndIncrement();
+            if (id <= courant.last()) {
+                return (int) id;
+            }
+            // Bloc épuisé : un seul thread en réserve un nouveau, les autres le reprennent ensuite.
+            // ReentrantLock et non synchronized : l'appel JDBC n'épingle pas le thread porteur (threads virtuels)
+            reserve.lock.lock();
+            try {
+                if (reserve.bloc.get() == courant) {
+                    reserve.bloc.set(reserver(spCompteur.getAsInt()));
+                }
+            } finally {
+                reserve.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Bloc d'identifiants correspondant à la valeur renvoyée par sp_COMPTEUR pour PAS = bloc.
+     */
+    Bloc reserver(final int valeur) {
+        long first = retour == Retour.DERNIER ? valeur - bloc + 1L : valeur;
+        log.debug("Compteur {} : identifiants {} à {} réservés", compteur, first, first + bloc - 1);
+        return new Bloc(new AtomicLong(first), first + bloc - 1);
+    }
+
+    private int appelerCompteur(final SharedSessionContractImplementor session) {
+        // Transaction séparée : la réservation est acquise même si l'insertion est annulée,
+        // sinon les identifiants gardés en mémoire pourraient être tirés à nouveau par un autre
+        Integer valeur = session.getTransactionCoordinator().createIsolationDelegate().delegateWork(
+                new AbstractReturningWork<Integer>() {
+                    @Override
+                    public Integer execute(Connection connection) throws SQLException {
+                        try (PreparedStatement ps = connection.prepareStatement(RESERVER_BLOC)) {
+                            ps.setString(1, compteur);
+                            ps.setInt(2, bloc);
+                            try (ResultSet rs = ps.executeQuery()) {
+                                return rs.next() ? (Integer) rs.getObject(1) : null;
+                            }
+                        }
+                    }
+                }, true);
+
+        if (valeur == null) {
+            throw new IllegalStateException("sp_COMPTEUR n'a pas renvoyé de valeur pour le compteur " + compteur);
+        }
+        return valeur;
+    }
+
     @Override
     public void configure(final Type type, final Properties params, final ServiceRegistry serviceRegistry) {
         compteur = params.getProperty(IDENTIFIER);
+
+        Map<String, Object> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        Object taille = settings.get(BLOCS_SETTING + compteur);
+        if (taille != null) {
+            bloc = Math.max(1, Integer.parseInt(taille.toString().trim()));
+        }
+        Object valeurRetournee = settings.get(RETOUR_SETTING);
+        if (valeurRetournee != null) {
+            retour = Retour.valueOf(valeurRetournee.toString().trim().toUpperCase());
+        }
+        log.debug("Compteur {} : blocs de {} identifiant(s)", compteur, bloc);
     }
 }
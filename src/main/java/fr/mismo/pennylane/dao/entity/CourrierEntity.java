@@ -5,6 +5,19 @@ import lombok.Data;
 import jakarta.persistence.*;
 import java.time.OffsetDateTime;
 
+// Courriers du lot, chacun accompagné de sa facture : Object[] { CourrierEntity, Integer }
+@NamedNativeQuery(
+        name = "CourrierEntity.exportFactureCourrierLot",
+        query = "EXEC SP_PENNYLANE_EXPORT_FACTURE_COURRIER_LOT @NO_V_FACTURES = :noVFactures",
+        resultSetMapping = "CourrierLotMapping"
+)
+
+@SqlResultSetMapping(
+        name = "CourrierLotMapping",
+        entities = @EntityResult(entityClass = CourrierEntity.class),
+        columns = @ColumnResult(name = "noVFacture", type = Integer.class)
+)
+
 @Data
 @Entity
 @Table(name = "COURRIER")
@@ -14,6 +14,12 @@ import java.util.Date;
         resultSetMapping = "FactureMapping"
 )
 
+@NamedNativeQuery(
+        name = "FactureEntity.getFacturesLot",
+        query = "EXEC SP_PENNYLANE_GET_FACTURES_LOT @NO_V_FACTURES = :noVFactures",
+        resultSetMapping = "FactureMapping"
+)
+
 @SqlResultSetMapping(
         name = "FactureMapping",
         classes = @ConstructorResult(
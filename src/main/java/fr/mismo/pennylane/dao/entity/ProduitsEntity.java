@@ -15,6 +15,12 @@ import java.time.LocalDateTime;
         resultSetMapping = "ProductMapping"
 )
 
+@NamedNativeQuery(
+        name = "ProduitsEntity.getProduitsLot",
+        query = "EXEC SP_PENNYLANE_GET_PRODUCTS_LOT @NO_PRODUITS = :noProduits",
+        resultSetMapping = "ProductMapping"
+)
+
 @SqlResultSetMapping(
         name = "ProductMapping",
         classes = @ConstructorResult(
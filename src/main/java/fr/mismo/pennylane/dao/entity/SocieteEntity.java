@@ -11,6 +11,13 @@ import jakarta.persistence.*;
         resultSetMapping = "TiersMapping"
 )
 
+// Tiers du lot, chaque ligne accompagnée de son NO_SOCIETE : Object[] { Tiers, Integer }
+@NamedNativeQuery(
+        name = "SocieteEntity.getTiersLot",
+        query = "EXEC SP_PENNYLANE_GET_TIERS_LOT @NO_SOCIETES = :noSocietes, @COD_SITE = :codSite",
+        resultSetMapping = "TiersLotMapping"
+)
+
 @SqlResultSetMapping(
         name = "TiersMapping",
         classes = @ConstructorResult(
@@ -46,6 +53,42 @@ import jakarta.persistence.*;
         )
 )
 
+@SqlResultSetMapping(
+        name = "TiersLotMapping",
+        classes = @ConstructorResult(
+                targetClass = Tiers.class,
+                columns = {
+                        @ColumnResult(name = "idUnique", type = String.class),
+                        @ColumnResult(name = "compteComptable", type = String.class),
+                        @ColumnResult(name = "raisonSociale", type = String.class),
+                        @ColumnResult(name = "typeTiers", type = String.class),
+                        @ColumnResult(name = "adresse1", type = String.class),
+                        @ColumnResult(name = "adresse2", type = String.class),
+                        @ColumnResult(name = "cp", type = String.class),
+                        @ColumnResult(name = "ville", type = String.class),
+                        @ColumnResult(name = "pays", type = String.class),
+                        @ColumnResult(name = "telephone", type = String.class),
+                        @ColumnResult(name = "fax", type = String.class),
+                        @ColumnResult(name = "email", type = String.class),
+                        @ColumnResult(name = "codeApe", type = String.class),
+                        @ColumnResult(name = "siret", type = String.class),
+                        @ColumnResult(name = "emailRelance", type = String.class),
+                        @ColumnResult(name = "tva", type = String.class),
+                        @ColumnResult(name = "codRegion", type = String.class),
+                        @ColumnResult(name = "codRglt", type = String.class),
+                        @ColumnResult(name = "intituleBanque", type = String.class),
+                        @ColumnResult(name = "structureBanque", type = String.class),
+                        @ColumnResult(name = "codeBanque", type = String.class),
+                        @ColumnResult(name = "guichetBanque", type = String.class),
+                        @ColumnResult(name = "compteBanque", type = String.class),
+                        @ColumnResult(name = "cleBanque", type = String.class),
+                        @ColumnResult(name = "bicBanque", type = String.class),
+                        @ColumnResult(name = "codeIso", type = String.class)
+                }
+        ),
+        columns = @ColumnResult(name = "noSociete", type = Integer.class)
+)
+
 @Data
 @Entity
 @Table(name = "SOCIETE")
@@ -16,5 +16,20 @@ public interface CourrierRepository extends CrudRepository<CourrierEntity, Integ
     @Query(value = "EXEC SP_PENNYLANE_EXPORT_FACTURE_COURRIER :noFacture", nativeQuery = true)
     Stream<CourrierEntity> callExportFactureCourrier(@Param("noFacture") int noFacture);
 
+    /**
+     * Un courrier par facture pour une liste de NO_V_FACTURE séparés par des virgules.
+     * Chaque ligne : { CourrierEntity, Integer noVFacture }.
+     */
+    @Query(name = "CourrierEntity.exportFactureCourrierLot", nativeQuery = true)
+    List<Object[]> callExportFactureCourrierLot(@Param("noVFactures") String noVFactures);
+
+    /**
+     * 1 si une version spécifique (spe_SP_PENNYLANE_EXPORT_FACTURE_COURRIER) existe : la procédure *_LOT
+     * ne renvoie alors aucune ligne et chaque courrier doit être lu par la procédure unitaire.
+     */
+    @Query(value = "SELECT CASE WHEN OBJECT_ID(N'spe_SP_PENNYLANE_EXPORT_FACTURE_COURRIER', N'P') IS NULL THEN 0 ELSE 1 END",
+            nativeQuery = true)
+    int exportFactureCourrierSpecifique();
+
 
 }
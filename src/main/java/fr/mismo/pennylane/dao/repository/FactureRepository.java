@@ -17,4 +17,12 @@ public interface FactureRepository extends CrudRepository<FactureEntity, Integer
     List<FactureDTO> getFacture(
             @Param("noVFacture") int noVFacture
     );
+
+    /**
+     * Lignes de toutes les factures d'une liste de NO_V_FACTURE séparés par des virgules.
+     */
+    @Query(name = "FactureEntity.getFacturesLot", nativeQuery = true)
+    List<FactureDTO> getFacturesLot(
+            @Param("noVFactures") String noVFactures
+    );
 }
@@ -1,5 +1,7 @@
 package fr.mismo.pennylane.dao.repository;
 import fr.mismo.pennylane.dao.entity.LogEntity;
+import fr.mismo.pennylane.dto.invoice.ReglementResult;
+import fr.mismo.pennylane.dto.invoice.SupplierInvoiceFingerprint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Modifying;
@@ -82,6 +84,11 @@ public interface LogRepository extends CrudRepository<LogEntity, Integer> {
             @Param("dateReglement") String dateReglement
     );
 
+    // Purge et création des règlements de plusieurs factures en un appel (tableau JSON de lignes)
+    @Transactional
+    @Query(value = "EXEC SP_PENNYLANE_SUPPLIER_INVOICE_CREER_REGLEMENT_LOT @REGLEMENTS_JSON = :reglementsJson", nativeQuery = true)
+    List<ReglementResult> creerReglementsLot(@Param("reglementsJson") String reglementsJson);
+
     @Transactional
     @Query(value = "DECLARE @RESULT_OUTPUT INT; " +
             "EXEC SP_PENNYLANE_SUPPLIER_INVOICE_PURGE_OBSOLETE_TRANSACTIONS " +
@@ -225,6 +232,11 @@ public interface LogRepository extends CrudRepository<LogEntity, Integer> {
     @Query(value = "EXEC SP_PENNYLANE_SUPPLIER_INVOICE_EXIST @INVOICE_ID = :invoiceId", nativeQuery = true)
     Integer checkIfSupplierInvoiceExists(@Param("invoiceId") String invoiceId);
 
+    // Factures existantes parmi une page d'identifiants Pennylane (séparés par des virgules)
+    @Transactional
+    @Query(value = "EXEC SP_PENNYLANE_SUPPLIER_INVOICE_EXIST_LOT @INVOICE_IDS = :invoiceIds", nativeQuery = true)
+    List<SupplierInvoiceFingerprint> findSupplierInvoiceFingerprints(@Param("invoiceIds") String invoiceIds);
+
     // Recherche par niveau
     Page<LogEntity> findByNiveau(String niveau, Pageable pageable);
 
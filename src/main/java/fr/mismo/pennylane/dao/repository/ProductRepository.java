@@ -17,4 +17,12 @@ public interface ProductRepository extends CrudRepository<SocieteEntity, Integer
     Product getProduct(
             @Param("noProduit") int noProduit
     );
+
+    /**
+     * Produits d'une liste de NO_PRODUIT séparés par des virgules.
+     */
+    @Query(name = "ProduitsEntity.getProduitsLot", nativeQuery = true)
+    List<Product> getProductsLot(
+            @Param("noProduits") String noProduits
+    );
 }
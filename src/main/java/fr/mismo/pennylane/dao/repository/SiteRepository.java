@@ -5,10 +5,12 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface SiteRepository extends JpaRepository<SiteEntity, String> {
     List<SiteEntity> findAllByPennylaneActifTrue();
     List<SiteEntity> findAllByPennylaneAchatTrue();
+    Optional<SiteEntity> findFirstById(int id);
 
 }
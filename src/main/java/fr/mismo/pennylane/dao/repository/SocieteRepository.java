@@ -20,4 +20,14 @@ public interface SocieteRepository extends CrudRepository<SocieteEntity, Integer
             @Param("codSite") String codSite
     );
 
+    /**
+     * Tiers d'une liste de NO_SOCIETE séparés par des virgules.
+     * Chaque ligne : { Tiers, Integer noSociete }.
+     */
+    @Query(name = "SocieteEntity.getTiersLot", nativeQuery = true)
+    List<Object[]> getTiersLot(
+            @Param("noSocietes") String noSocietes,
+            @Param("codSite") String codSite
+    );
+
 }
@@ -0,0 +1,19 @@
+package fr.mismo.pennylane.dto.customer;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CustomerListResponse {
+
+    @JsonProperty("has_more")
+    private boolean hasMore;
+
+    @JsonProperty("next_cursor")
+    private String nextCursor;
+
+    @JsonProperty("items")
+    private List<Customer> items;
+}
@@ -0,0 +1,20 @@
+package fr.mismo.pennylane.dto.invoice;
+
+/**
+ * Résultat d'une opération de SP_PENNYLANE_SUPPLIER_INVOICE_CREER_REGLEMENT_LOT.
+ */
+public interface ReglementResult {
+
+    String OPERATION_PURGE = "PURGE";
+    String OPERATION_REGLEMENT = "REGLEMENT";
+
+    String getInvoiceId();
+
+    // Null pour la purge
+    Long getTransactionId();
+
+    String getOperation();
+
+    // Code retour de la procédure unitaire (1 succès, -2 facture non trouvée, -3 déjà synchronisée, -99 erreur)
+    Integer getResult();
+}
@@ -0,0 +1,29 @@
+package fr.mismo.pennylane.dto.invoice;
+
+import java.math.BigDecimal;
+
+/**
+ * Facture d'achat déjà importée dans Athénéo (A_FACTURE), telle que renvoyée par
+ * SP_PENNYLANE_SUPPLIER_INVOICE_EXIST_LOT : les valeurs reportées par la mise à jour.
+ */
+public interface SupplierInvoiceFingerprint {
+
+    String getInvoiceId();
+
+    Integer getNoAFacture();
+
+    String getObjet();
+
+    // Format ISO (yyyy-MM-dd), comme la date des factures Pennylane
+    String getDateFacture();
+
+    String getCodSite();
+
+    BigDecimal getTotalHt();
+
+    BigDecimal getTotalTtc();
+
+    BigDecimal getTotalTva();
+
+    String getInvoiceNumber();
+}
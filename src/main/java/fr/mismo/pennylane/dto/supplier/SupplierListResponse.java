@@ -0,0 +1,19 @@
+package fr.mismo.pennylane.dto.supplier;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class SupplierListResponse {
+
+    @JsonProperty("has_more")
+    private boolean hasMore;
+
+    @JsonProperty("next_cursor")
+    private String nextCursor;
+
+    @JsonProperty("items")
+    private List<Supplier> items;
+}
@@ -0,0 +1,13 @@
+package fr.mismo.pennylane.model;
+
+/**
+ * État d'une facture d'achat Pennylane par rapport à Athénéo, avant son traitement.
+ */
+public enum SupplierInvoiceState {
+    // Absente d'A_FACTURE : à créer
+    NOUVELLE,
+    // Présente mais l'une des valeurs reportées diffère : à mettre à jour
+    MODIFIEE,
+    // Présente et identique : rien à faire
+    INCHANGEE
+}
@@ -8,14 +8,16 @@ import fr.mismo.pennylane.dto.accounting.Item;
 import fr.mismo.pennylane.dto.ath.Ecriture;
 import fr.mismo.pennylane.dto.ath.Tiers;
 import fr.mismo.pennylane.dto.customer.Customer;
-import fr.mismo.pennylane.dto.customer.ResponseCustomer;
 import fr.mismo.pennylane.dto.invoice.FactureDTO;
 import fr.mismo.pennylane.dto.invoice.FileAttachmentResponse;
 import fr.mismo.pennylane.dto.invoice.Invoice;
 import fr.mismo.pennylane.dto.invoice.InvoiceResponse;
 import fr.mismo.pennylane.dto.product.Product;
+import fr.mismo.pennylane.util.CircuitBreakerRegistry;
+import fr.mismo.pennylane.util.EndpointFamily;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -24,6 +26,9 @@ import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -73,7 +78,52 @@ public class AccountingService {
     @Autowired
     AccountsApi accountsApi;
 
-    @Transactional
+    @Autowired
+    CircuitBreakerRegistry circuitBreakers;
+
+    @Autowired
+    LedgerAccountIndex ledgerAccountIndex;
+
+    @Autowired
+    ProductCatalogIndex productCatalogIndex;
+
+    @Autowired
+    CustomerDirectory customerDirectory;
+
+    @Autowired
+    ShortTransactions shortTransactions;
+
+    // Chargement ensembliste des lectures Athénéo du lot (procédures *_LOT)
+    @Value("${sync.lot.prefetch:true}")
+    private boolean lotPrefetch = true;
+
+    // Pièces chargées et envoyées ensemble
+    @Value("${sync.lot.windowSize:100}")
+    private int lotWindowSize = 100;
+
+    // Taille de la première fenêtre, doublée ensuite jusqu'à windowSize : la première facture part sans attendre
+    @Value("${sync.lot.firstWindowSize:1}")
+    private int lotFirstWindowSize = 1;
+
+    // Étapes d'export des pièces en chaîne, chacune sur son thread
+    @Value("${sync.lot.pipeline:true}")
+    private boolean lotPipeline = true;
+
+    // Pièces en attente entre deux étapes
+    @Value("${sync.lot.pipelineQueueSize:4}")
+    private int lotPipelineQueueSize = 4;
+
+    // Création d'un compte comptable, un seul thread à la fois par site et numéro de compte
+    // (verrou sans épinglage des threads virtuels)
+    private final Map<String, ReentrantLock> compteLocks = new ConcurrentHashMap<>();
+
+    // Familles d'appels sollicitées par l'export d'une pièce
+    private static final EndpointFamily[] ECRITURE_FAMILIES = EndpointFamily.values();
+
+    /**
+     * Non transactionnel : les appels Pennylane et WSDocument se font sans connexion JDBC détenue,
+     * chaque écriture Athénéo est validée aussitôt dans une transaction courte.
+     */
     public void syncEcriture(final Integer ecritureInt, SiteEntity site, List<Item> comptes) {
         // Validation des paramètres d'entrée
         if (ecritureInt == null) {
@@ -89,124 +139,203 @@ public class AccountingService {
             throw new IllegalArgumentException("La liste des comptes ne peut pas être null");
         }
 
+        if (circuitBreakers.isOpen(site, ECRITURE_FAMILIES)) {
+            log.warn("Lot d'écriture N°{} laissé en attente : disjoncteur ouvert pour le site {}", ecritureInt, site.getCode());
+            return;
+        }
+
         log.info("\n/////// Début synchronisation d'un lot d'écriture N°{} ///////\n", ecritureInt);
 
+        // Index du plan comptable, normalement déjà construit par le scheduler pour ce passage
+        ledgerAccountIndex.loadIfAbsent(site, comptes);
+
         final List<Ecriture> ecritures = ecritureRepository.getEcrituresToExport(ecritureInt);
 
         // Vérification si la liste est vide
         if (ecritures == null || ecritures.isEmpty()) {
             log.warn("Aucune écriture à exporter pour le lot N°{}", ecritureInt);
-            logRepository.traiterLot(ecritureInt, "Aucune écriture à traiter", true);
+            shortTransactions.write("TRAITER_LOT", () -> logRepository.traiterLot(ecritureInt, "Aucune écriture à traiter", true));
             return;
         }
 
         final Map<Integer, List<Ecriture>> groupedEcritures = ecritures.stream()
                 .collect(Collectors.groupingBy(Ecriture::getNoEcriturePiece));
 
-        int lotSuccess = 0;
-        int lotErr = 0;
-
         log.info("Nombre d'écritures à traiter : {}", ecritures.size());
 
-        for (List<Ecriture> ecrituresList : groupedEcritures.values()) {
-            // Vérification de sécurité : la liste ne doit pas être vide
-            if (ecrituresList == null || ecrituresList.isEmpty()) {
-                log.warn("Liste d'écritures vide dans le groupe, ignorée");
-                continue;
-            }
-
-            Ecriture first = ecrituresList.get(0);
-            if (first == null) {
-                log.error("La première écriture du groupe est null, ignorée");
-                lotErr++;
-                continue;
-            }
-
-            log.debug("Traitement de l'écriture N°{} pour la facture {}", first.getNoEcriturePiece(), first.getNoVFacture());
-
-
-                Invoice wrapper = null;
-
-                try {
+        exportPieces(ecritureInt, site, comptes, groupedEcritures.values().iterator());
+    }
 
-                    List<Product> products = processProducts(ecrituresList, site);
+    /**
+     * Pièce du lot en cours d'export, transmise d'étape en étape.
+     */
+    private static final class PieceEnCours {
+        private final Ecriture first;
+        private final List<Ecriture> ecrituresList;
+        private Invoice wrapper;
+
+        PieceEnCours(Ecriture first, List<Ecriture> ecrituresList) {
+            this.first = first;
+            this.ecrituresList = ecrituresList;
+        }
+    }
 
-                    log.info("Produits traités avec succès pour la facture {}", first.getNoVFacture());
-                } catch (Exception e) {
-                    log.error("Erreur lors du traitement des produits pour la facture {}: {}", first.getNoVFacture(), e.getMessage(), e);
-                    logRepository.ajouterLigneForum("V_FACTURE", String.valueOf(first.getNoVFacture()), "Erreur dans le processProducts : " + e.getMessage(), 2);
-                    lotErr++;
+    /**
+     * Exporte les pièces du lot par fenêtres : lectures Athénéo chargées pour la fenêtre, pièces envoyées,
+     * puis lectures de la fenêtre libérées. La première fenêtre compte lotFirstWindowSize pièces et
+     * chaque suivante le double, jusqu'à lotWindowSize.
+     *
+     * Dans une fenêtre, les étapes produits / facture / courrier / client / création s'enchaînent
+     * en chaîne (PiecePipeline) : le courrier et le client de la pièce suivante sont préparés
+     * pendant la création de la précédente. Chaque étape garde l'ordre des pièces.
+     */
+    private void exportPieces(Integer ecritureInt, SiteEntity site, List<Item> comptes, Iterator<List<Ecriture>> pieces) {
+        // Lectures Athénéo partagées par les étapes du lot, abandonnées à la fin du lot
+        LotContext lot = new LotContext(factureRepository, societeRepository, productRepository, courrierRepository, shortTransactions);
+
+        AtomicInteger lotSuccess = new AtomicInteger();
+        AtomicInteger lotErr = new AtomicInteger();
+
+        PiecePipeline<PieceEnCours> pipeline = new PiecePipeline<PieceEnCours>("lot-" + ecritureInt, lotPipeline, lotPipelineQueueSize,
+                () -> circuitBreakers.isOpen(site, ECRITURE_FAMILIES))
+                .stage("produits", piece -> step(piece, "processProducts", lotErr, () -> {
+                    processProducts(lot, piece.ecrituresList, site);
+                    log.info("Produits traités avec succès pour la facture {}", piece.first.getNoVFacture());
+                }))
+                .stage("facture", piece -> step(piece, "processInvoice", lotErr, () -> {
+                    piece.wrapper = processInvoice(lot, piece.first, piece.ecrituresList, site, comptes);
+                    log.info("Facture traitée avec succès pour la facture {}", piece.first.getNoVFacture());
+                }))
+                .stage("courrier", piece -> step(piece, "processCourrier", lotErr, () -> {
+                    processCourrier(lot, piece.first, piece.wrapper, site);
+                    log.info("Courrier traité avec succès pour la facture {}", piece.first.getNoVFacture());
+                }))
+                .stage("client", piece -> step(piece, "processCustomer", lotErr, () -> {
+                    String aCustomer = processCustomer(lot, piece.first, site, String.valueOf(piece.first.getNoVFacture()), comptes);
+                    piece.wrapper.setCustomerId(aCustomer);
+                    log.info("Client traité avec succès pour la facture {}", piece.first.getNoVFacture());
+                }))
+                .stage("creation", piece -> {
+                    if (createInvoice(piece, site)) {
+                        lotSuccess.incrementAndGet();
+                        return true;
+                    }
+                    lotErr.incrementAndGet();
+                    return false;
+                });
+
+        long start = System.currentTimeMillis();
+        int pieceCount = 0;
+        List<PieceEnCours> window = new ArrayList<>();
+        List<Integer> windowFactures = new ArrayList<>();
+        int maxWindowSize = Math.max(1, lotWindowSize);
+        int windowSize = Math.min(Math.max(1, lotFirstWindowSize), maxWindowSize);
+        while (pieces.hasNext()) {
+            window.clear();
+            windowFactures.clear();
+            while (pieces.hasNext() && window.size() < windowSize) {
+                List<Ecriture> ecrituresList = pieces.next();
+                // Vérification de sécurité : la liste ne doit pas être vide
+                if (ecrituresList == null || ecrituresList.isEmpty()) {
+                    log.warn("Liste d'écritures vide dans le groupe, ignorée");
                     continue;
                 }
-
-
-            try {
-                wrapper = processInvoice(first, ecrituresList, site, comptes);
-                log.info("Facture traitée avec succès pour la facture {}", first.getNoVFacture());
-            } catch (Exception e) {
-                log.error("Erreur lors du traitement de la facture   {}: {}", first.getNoVFacture(), e.getMessage(), e);
-                logRepository.ajouterLigneForum("V_FACTURE", String.valueOf(first.getNoVFacture()), "Erreur dans le processInvoice : " + e.getMessage(), 2);
-                lotErr++;
-                continue;
-            }
-
-                try {
-                    processCourrier(first, wrapper, site);
-                    log.info("Courrier traité avec succès pour la facture {}", first.getNoVFacture());
-                } catch (Exception e) {
-                    log.error("Erreur lors du traitement du courrier pour la facture {}: {}", first.getNoVFacture(), e.getMessage(), e);
-                    logRepository.ajouterLigneForum("V_FACTURE", String.valueOf(first.getNoVFacture()), "Erreur dans le processCourrier : " + e.getMessage(), 2);
-                    lotErr++;
+                Ecriture first = ecrituresList.get(0);
+                if (first == null) {
+                    log.error("La première écriture du groupe est null, ignorée");
+                    lotErr.incrementAndGet();
                     continue;
                 }
+                window.add(new PieceEnCours(first, ecrituresList));
+            }
+            window.forEach(piece -> windowFactures.add(piece.first.getNoVFacture()));
+            if (lotPrefetch) {
+                lot.prefetch(windowFactures, site.getCode());
+            }
 
-            try {
-                String aCustomer = processCustomer(first, site, String.valueOf(first.getNoVFacture()), comptes);
-                wrapper.setCustomerId(aCustomer);
-                log.info("Client traité avec succès pour la facture {}", first.getNoVFacture());
-            } catch (Exception e) {
-                log.error("Erreur lors du traitement du client pour la facture {}: {}", first.getNoVFacture(), e.getMessage(), e);
-                logRepository.ajouterLigneForum("V_FACTURE", String.valueOf(first.getNoVFacture()), "Erreur dans le processCustomer : " + e.getMessage(), 2);
-                lotErr++;
-                continue;
+            // Disjoncteur ouvert en cours de lot : inutile d'enchaîner les échecs, le lot reste à traiter
+            if (!pipeline.run(window)) {
+                log.warn("Lot d'écriture N°{} interrompu : disjoncteur ouvert pour le site {} ({} réussis, {} erreurs), il sera repris au prochain passage",
+                        ecritureInt, site.getCode(), lotSuccess.get(), lotErr.get());
+                return;
             }
+            pieceCount += window.size();
+            windowSize = Math.min(windowSize * 2, maxWindowSize);
 
-            InvoiceResponse response = invoiceApi.createInvoice(wrapper, site, true);
-                    if (response != null && (response.getResponseStatus() == null || response.getResponseStatus().isEmpty())) {
-                        log.info("Facture créée avec succès pour la facture {}", first.getNoVFacture());
-                        logRepository.traiterFacture(first.getNoVFacture(), response.getId().toString(), response.getId().toString(), true);
-                        logRepository.ajouterLigneForum("V_FACTURE", String.valueOf(first.getNoVFacture()), "Facture transmise avec succès à Pennylane.", 5);
-                    } else if (response != null && "ALREADY_EXISTS".equals(response.getResponseStatus())) {
-                        log.warn("Facture déjà existante pour la facture {}", first.getNoVFacture());
-                        logRepository.traiterFacture(first.getNoVFacture(), response.getId().toString(), response.getId().toString(), true);
-                        logRepository.ajouterLigneForum("V_FACTURE", String.valueOf(first.getNoVFacture()), "La facture existe déjà dans Pennylane.", 4);
-                    } else if (response != null && "FAILED".equals(response.getResponseStatus())) {
-                        log.error("Échec lors de la création de la facture {}: {}", first.getNoVFacture(), response.getResponseMessage());
-                        logRepository.ajouterLigneForum("V_FACTURE", String.valueOf(first.getNoVFacture()), "Échec création facture : " + response.getResponseMessage(), 2);
-                        lotErr++;
-                        continue;
-                    } else {
-                        log.error("Erreur inconnue lors de la création de la facture pour la facture {}", first.getNoVFacture());
-                        logRepository.ajouterLigneForum("V_FACTURE", String.valueOf(first.getNoVFacture()), "Erreur inconnue dans createInvoice", 2);
-                        lotErr++;
-                        continue;
-                    }
+            // Lignes de factures et courriers de la fenêtre : plus utiles une fois les pièces envoyées
+            windowFactures.forEach(lot::release);
+        }
+
+        long durationMs = System.currentTimeMillis() - start;
+        log.info("Lot d'écriture N°{} : {} pièce(s) en {} ms ({} pièce(s)/min), temps par étape (ms) : {}", ecritureInt, pieceCount,
+                durationMs, durationMs > 0 ? pieceCount * 60000L / durationMs : pieceCount, pipeline.getBusyMs());
+
+        String lotMessage = "Traitement lot terminé : " + lotSuccess.get() + " réussis, " + lotErr.get() + " erreurs";
+        boolean lotOk = lotErr.get() == 0;
+        shortTransactions.write("TRAITER_LOT", () -> logRepository.traiterLot(ecritureInt, lotMessage, lotOk));
+        log.info("Traitement finalisé : {} factures réussies, {} erreurs.", lotSuccess.get(), lotErr.get());
+        log.info("\n/////// Fin synchronisation d'un lot d'écriture N° {} ///////\n", ecritureInt);
+    }
 
+    /**
+     * Étape de préparation d'une pièce : en cas d'erreur, la pièce est écartée et l'erreur portée au forum de la facture.
+     */
+    private boolean step(PieceEnCours piece, String stepName, AtomicInteger lotErr, Runnable action) {
+        try {
+            action.run();
+            return true;
+        } catch (Exception e) {
+            log.error("Erreur dans le {} pour la facture {}: {}", stepName, piece.first.getNoVFacture(), e.getMessage(), e);
+            forum(piece.first.getNoVFacture(), "Erreur dans le " + stepName + " : " + e.getMessage(), 2);
+            lotErr.incrementAndGet();
+            return false;
+        }
+    }
 
-                log.info("Traitement complet réussi pour la facture {}.", first.getNoVFacture());
-                lotSuccess++;
+    /**
+     * Création de la facture dans Pennylane et report du résultat dans Athénéo.
+     * Une exception de l'appel interrompt le lot, comme avant la mise en chaîne.
+     */
+    private boolean createInvoice(PieceEnCours piece, SiteEntity site) {
+        Ecriture first = piece.first;
+        InvoiceResponse response = invoiceApi.createInvoice(piece.wrapper, site, true);
+        if (response != null && (response.getResponseStatus() == null || response.getResponseStatus().isEmpty())) {
+            log.info("Facture créée avec succès pour la facture {}", first.getNoVFacture());
+            shortTransactions.write("TRAITER_FACTURE", () -> {
+                logRepository.traiterFacture(first.getNoVFacture(), response.getId().toString(), response.getId().toString(), true);
+                logRepository.ajouterLigneForum("V_FACTURE", String.valueOf(first.getNoVFacture()), "Facture transmise avec succès à Pennylane.", 5);
+            });
+        } else if (response != null && "ALREADY_EXISTS".equals(response.getResponseStatus())) {
+            log.warn("Facture déjà existante pour la facture {}", first.getNoVFacture());
+            shortTransactions.write("TRAITER_FACTURE", () -> {
+                logRepository.traiterFacture(first.getNoVFacture(), response.getId().toString(), response.getId().toString(), true);
+                logRepository.ajouterLigneForum("V_FACTURE", String.valueOf(first.getNoVFacture()), "La facture existe déjà dans Pennylane.", 4);
+            });
+        } else if (response != null && "FAILED".equals(response.getResponseStatus())) {
+            log.error("Échec lors de la création de la facture {}: {}", first.getNoVFacture(), response.getResponseMessage());
+            forum(first.getNoVFacture(), "Échec création facture : " + response.getResponseMessage(), 2);
+            return false;
+        } else {
+            log.error("Erreur inconnue lors de la création de la facture pour la facture {}", first.getNoVFacture());
+            forum(first.getNoVFacture(), "Erreur inconnue dans createInvoice", 2);
+            return false;
         }
 
-        logRepository.traiterLot(ecritureInt, "Traitement lot terminé : " + lotSuccess + " réussis, " + lotErr + " erreurs", lotErr == 0);
-        log.info("Traitement finalisé : {} factures réussies, {} erreurs.", lotSuccess, lotErr);
-        log.info("\n/////// Fin synchronisation d'un lot d'écriture N° {} ///////\n", ecritureInt);
+        log.info("Traitement complet réussi pour la facture {}.", first.getNoVFacture());
+        return true;
     }
 
-    private Invoice processInvoice(Ecriture first, List<Ecriture> ecrituresList, SiteEntity site, List<Item> comptes) {
-        List<FactureDTO> invoiceToImport = factureRepository.getFacture(first.getNoVFacture());
+    private Invoice processInvoice(LotContext lot, Ecriture first, List<Ecriture> ecrituresList, SiteEntity site, List<Item> comptes) {
+        List<FactureDTO> invoiceToImport = lot.getFacture(first.getNoVFacture());
 
         log.info("Traitement de la facture {}.", invoiceToImport.getFirst().getChronoVFacture());
 
+        // Comptes créés avant le mapping : les lignes trouvent leur ledger_account_id dans l'index
+        for (FactureDTO factureLigne : invoiceToImport) {
+            String compte = factureLigne.getCpte();
+            Item item = verifyOrCreateCompte(compte, comptes, site, "Auto interface Pennylane " + compte);
+        }
+
         Invoice wrapper = invoiceMapper.mapToInvoice(invoiceToImport, site);
 
         // Sécurisation du parsing de la date
@@ -226,17 +355,12 @@ public class AccountingService {
             log.warn("La date d'échéance est null pour la facture {}.", first.getNoVFacture());
         }
 
-        for (FactureDTO factureLigne : invoiceToImport) {
-            String compte = factureLigne.getCpte();
-            Item item = verifyOrCreateCompte(compte, comptes, site, "Auto interface Pennylane " + compte);
-        }
-
         return wrapper;
     }
 
 
-    private String processCustomer(Ecriture first, SiteEntity site, String noFacture, List<Item> comptes) {
-        List<FactureDTO> invoiceToImport = factureRepository.getFacture(first.getNoVFacture());
+    private String processCustomer(LotContext lot, Ecriture first, SiteEntity site, String noFacture, List<Item> comptes) {
+        List<FactureDTO> invoiceToImport = lot.getFacture(first.getNoVFacture());
 
         // Validation : la liste de factures ne doit pas être vide
         if (invoiceToImport == null || invoiceToImport.isEmpty()) {
@@ -244,7 +368,7 @@ public class AccountingService {
             throw new IllegalStateException("Impossible de traiter le client : aucune facture trouvée");
         }
 
-        Tiers tierToImport = societeRepository.getTiers(invoiceToImport.get(0).getNoSociete(), site.getCode());
+        Tiers tierToImport = lot.getTiers(invoiceToImport.get(0).getNoSociete(), site.getCode());
 
         // Validation : le tiers doit exister
         if (tierToImport == null) {
@@ -266,24 +390,24 @@ public class AccountingService {
                 return null;
             }
 
-            // Récupérer le compte dans l'API Pennylane via son numéro
-            Item ledger = accountsApi.getLedgerAccountByNumber(item.getNumber(), site);
+            // Compte issu du plan comptable du site (index) ; lu dans Pennylane seulement s'il n'a pas d'id
+            Item ledger = item.getId() != null ? item : accountsApi.getLedgerAccountByNumber(item.getNumber(), site);
             if (ledger == null) {
                 log.error("Le compte comptable {} n'existe pas dans l'API Pennylane.",
                         item.getNumber());
                 return null;
             }
 
-            ResponseCustomer requestedCustomer = customerApi.findCustomerByLedgerAccount(site, Long.valueOf(ledger.getId()));
+            Customer foundCustomer = customerDirectory.findByLedgerAccount(site, Long.valueOf(ledger.getId()));
 
-            if (requestedCustomer != null && !requestedCustomer.getItems().isEmpty()) {
-                Customer foundCustomer = requestedCustomer.getItems().getFirst();
-                logRepository.majSociete(tierToImport.getCompteComptable(), foundCustomer.getId().toString(), foundCustomer.getId().toString(), site.getCode());
-                customer = customerApi.retrieveCustomer(String.valueOf(foundCustomer.getId()), site);
+            if (foundCustomer != null) {
+                shortTransactions.write("MAJ_SOCIETE", () -> logRepository.majSociete(tierToImport.getCompteComptable(),
+                        foundCustomer.getId().toString(), foundCustomer.getId().toString(), site.getCode()));
+                customer = foundCustomer;
                 customerId = foundCustomer.getId().toString();
             }
         } else {
-            customer = customerApi.retrieveCustomer(tierToImport.getIdUnique(), site);
+            customer = customerDirectory.findById(site, Long.valueOf(tierToImport.getIdUnique()));
         }
 
         log.info("Traitement de la société {} - {}.", tierToImport.getRaisonSociale(), tierToImport.getCompteComptable());
@@ -292,24 +416,37 @@ public class AccountingService {
             log.info("Création de la société dans Pennylane");
 
             Customer create = customerApi.createCustomer(tiersMapper.mapToCustomer(tierToImport, site, noFacture), site);
-            customerId = String.valueOf(create.getId());
-            logRepository.majSociete(tierToImport.getCompteComptable(), customerId, customerId, site.getCode());
+            String createdId = String.valueOf(create.getId());
+            customerDirectory.put(site, create);
+            customerId = createdId;
+            shortTransactions.write("MAJ_SOCIETE", () -> logRepository.majSociete(tierToImport.getCompteComptable(), createdId, createdId, site.getCode()));
         } else {
-            log.info("Mise à jour de la société dans Pennylane");
             if (tierToImport.getIdUnique() != null) {
                 customerId = tierToImport.getIdUnique();
-                customerApi.updateCustomer(tiersMapper.mapToCustomer(tierToImport, site, noFacture), site);
+                Customer wanted = tiersMapper.mapToCustomer(tierToImport, site, noFacture);
+                // Client déjà à jour dans Pennylane : pas de PUT
+                if (CustomerDirectory.isUpToDate(wanted, customer)) {
+                    log.debug("Société {} inchangée, pas de mise à jour dans Pennylane", customerId);
+                } else {
+                    log.info("Mise à jour de la société dans Pennylane");
+                    customerDirectory.put(site, customerApi.updateCustomer(wanted, site));
+                }
             }
         }
+
+        // Tiers partagé par le lot : les factures suivantes de ce client le voient rattaché, comme après relecture
+        if (customerId != null) {
+            tierToImport.setIdUnique(customerId);
+        }
         return customerId;
     }
 
 
-    private List<Product> processProducts(List<Ecriture> ecrituresList, SiteEntity site) {
+    private List<Product> processProducts(LotContext lot, List<Ecriture> ecrituresList, SiteEntity site) {
         List<Product> processedProducts = new ArrayList<>();
 
         // Récupération des lignes de facture
-        List<FactureDTO> factureLines = factureRepository.getFacture(ecrituresList.getFirst().getNoVFacture());
+        List<FactureDTO> factureLines = lot.getFacture(ecrituresList.getFirst().getNoVFacture());
 
         // Filtrer les lignes avec produit valide et éviter les doublons par noProduit
         Map<Integer, FactureDTO> uniqueProducts = factureLines.stream()
@@ -320,11 +457,8 @@ public class AccountingService {
                         (existing, duplicate) -> existing // en cas de doublons, garder le premier
                 ));
 
-        // Charger tous les produits existants du site une seule fois
-        List<Product> siteProducts = productApi.listAllProducts(site);
-
         for (FactureDTO line : uniqueProducts.values()) {
-            Product productToImport = productRepository.getProduct(line.getNoProduit());
+            Product productToImport = lot.getProduct(line.getNoProduit());
             if (productToImport == null) {
                 log.warn("Aucun produit trouvé avec le numéro de produit : {}", line.getNoProduit());
                 continue;
@@ -333,21 +467,18 @@ public class AccountingService {
             Product retrievedProduct = null;
 
             if (productToImport.getId() == null) {
-                retrievedProduct = siteProducts.stream()
-                        .filter(p -> p.getExternalReference() != null)
-                        .filter(p -> p.getExternalReference().equals(productToImport.getExternalReference()))
-                        .findFirst()
-                        .orElse(null);
+                retrievedProduct = productCatalogIndex.findByExternalReference(site, productToImport.getExternalReference());
 
                 if (retrievedProduct != null) {
                     productToImport.setId(retrievedProduct.getId());
-                    logRepository.majProduit(
+                    String retrievedId = retrievedProduct.getId().toString();
+                    shortTransactions.write("MAJ_PRODUIT", () -> logRepository.majProduit(
                             Integer.parseInt(productToImport.getExternalReference()),
-                            retrievedProduct.getId().toString()
-                    );
+                            retrievedId
+                    ));
                 }
             } else {
-                retrievedProduct = productApi.retrieveProduct(String.valueOf(productToImport.getId()), site);
+                retrievedProduct = productCatalogIndex.findById(site, productToImport.getId());
             }
 
             log.info("Traitement du produit {} - {}.", productToImport.getReference(), productToImport.getLabel());
@@ -358,10 +489,13 @@ public class AccountingService {
                         productMapper.mapToProduct(productToImport, String.valueOf(ecrituresList.get(0).getNoVFacture())),
                         site
                 );
-                logRepository.majProduit(
+                shortTransactions.write("MAJ_PRODUIT", () -> logRepository.majProduit(
                         Integer.parseInt(productToImport.getExternalReference()),
                         createdProduct.getId().toString()
-                );
+                ));
+                // Produit partagé par le lot : mis à jour et non recréé pour les factures suivantes
+                productToImport.setId(createdProduct.getId());
+                productCatalogIndex.put(site, createdProduct);
                 processedProducts.add(createdProduct);
             } else {
                 log.info("Mise à jour du produit dans pennylane");
@@ -369,6 +503,7 @@ public class AccountingService {
                         productMapper.mapToProduct(productToImport, String.valueOf(ecrituresList.get(0).getNoVFacture())),
                         site
                 );
+                productCatalogIndex.put(site, updatedProduct);
                 processedProducts.add(updatedProduct);
             }
         }
@@ -378,12 +513,13 @@ public class AccountingService {
 
 
 
-    private void processCourrier(Ecriture first, Invoice wrapper, SiteEntity site) {
-        Optional<CourrierEntity> optionalCourrier = courrierRepository.callExportFactureCourrier(first.getNoVFacture()).findFirst();
+    private void processCourrier(LotContext lot, Ecriture first, Invoice wrapper, SiteEntity site) {
+        Optional<CourrierEntity> optionalCourrier = lot.getCourrier(first.getNoVFacture());
         if (optionalCourrier.isPresent()) {
             CourrierEntity courrier = optionalCourrier.get();
             log.info("Traitement du courrier {}.", courrier.getTitreC());
-            MultipartFile multipartFile = wsDocumentService.getDocumentContentMultipart(courrier.getLastVersion());
+            MultipartFile multipartFile = circuitBreakers.execute(site, EndpointFamily.DOCUMENTS,
+                    () -> wsDocumentService.getDocumentContentMultipart(courrier.getLastVersion()));
             try {
                 String base64File = convertFileToBase64(multipartFile);
 
@@ -409,7 +545,7 @@ public class AccountingService {
             }
         } else {
             log.info("Aucun courrier pour la facture de vente N° {}", first.getNoVFacture());
-            logRepository.ajouterLigneForum("V_FACTURE", String.valueOf(first.getNoVFacture()), "Aucun courrier trouvé pour cette facture.", 2);
+            forum(first.getNoVFacture(), "Aucun courrier trouvé pour cette facture.", 2);
         }
     }
 
@@ -425,37 +561,47 @@ public class AccountingService {
             return null;
         }
 
-        Optional<Item> existingItem = comptes.stream()
-                .filter(item -> item != null && item.getNumber() != null)
-                .filter(item -> Objects.equals(
-                        removeTrailingZerosString(item.getNumber()),
-                        removeTrailingZerosString(String.valueOf(compteGeneral))
-                ))
-                .findFirst();
-
-        if (existingItem.isEmpty()) {
-            Item newItem = new Item();
-            newItem.setNumber(compteGeneral);
-            newItem.setLabel(raisonSociale != null ? raisonSociale : "Auto interface Pennylane");
-            try {
-                Item createdItem = accountsApi.createLedgerAccount(newItem, site);
-                // FIXME: Remplacer ce sleep par un mécanisme de retry/backoff approprié
-                // Le sleep bloque le thread et n'est pas une bonne pratique
-                Thread.sleep(2000);
-                log.info("Compte créé dans Pennylane : {}", createdItem);
-                existingItem = Optional.of(createdItem);
-                comptes.add(createdItem);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.error("Interruption lors de l'attente après création du compte", e);
-            } catch (Exception e) {
-                log.error("Erreur lors de la création du compte dans Pennylane", e);
+        Optional<Item> existingItem = Optional.ofNullable(ledgerAccountIndex.findByNumber(site, compteGeneral));
+        if (existingItem.isPresent()) {
+            return existingItem.get();
+        }
+
+        // Les étapes facture et client d'un lot tournent en parallèle : un compte n'est créé qu'une fois
+        ReentrantLock compteLock = compteLocks.computeIfAbsent(site.getId() + "|" + compteGeneral, key -> new ReentrantLock());
+        compteLock.lock();
+        try {
+            existingItem = Optional.ofNullable(ledgerAccountIndex.findByNumber(site, compteGeneral));
+            if (existingItem.isEmpty()) {
+                Item newItem = new Item();
+                newItem.setNumber(compteGeneral);
+                newItem.setLabel(raisonSociale != null ? raisonSociale : "Auto interface Pennylane");
+                try {
+                    Item createdItem = accountsApi.createLedgerAccount(newItem, site);
+                    if (createdItem == null) {
+                        log.error("Le compte {} n'a pas pu être créé dans Pennylane", compteGeneral);
+                        return null;
+                    }
+                    log.info("Compte créé dans Pennylane : {}", createdItem);
+
+                    // Les mappers lisent l'index : le compte créé leur est visible sans relecture Pennylane.
+                    // La liste comptes, partagée avec le scheduler, n'est pas modifiée
+                    existingItem = Optional.of(createdItem);
+                    ledgerAccountIndex.add(site, createdItem);
+                } catch (Exception e) {
+                    log.error("Erreur lors de la création du compte dans Pennylane", e);
+                }
             }
+        } finally {
+            compteLock.unlock();
         }
 
         return existingItem.orElse(null);
     }
 
+    private void forum(Integer noVFacture, String message, int niveau) {
+        shortTransactions.write("FORUM_V_FACTURE", () -> logRepository.ajouterLigneForum("V_FACTURE", String.valueOf(noVFacture), message, niveau));
+    }
+
     public static String removeTrailingZerosString(String input) {
         if (input == null || input.isEmpty()) {
             return input;
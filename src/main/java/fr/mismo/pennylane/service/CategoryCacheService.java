@@ -1,6 +1,7 @@
 package fr.mismo.pennylane.service;
 
 import fr.mismo.pennylane.api.InvoiceApi;
+import fr.mismo.pennylane.configuration.CacheConfig;
 import fr.mismo.pennylane.dao.entity.SiteEntity;
 import fr.mismo.pennylane.dto.Category;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,10 +16,12 @@ public class CategoryCacheService {
     @Autowired
     private InvoiceApi invoiceApi;
 
-    @Cacheable(value = "categoriesBySite", key = "#site.id")
+    /**
+     * Catégories du site, mises en cache par id de site (TTL, taille et rafraîchissement : voir CacheConfig).
+     * Une liste vide (erreur de lecture) n'est pas mise en cache.
+     */
+    @Cacheable(value = CacheConfig.CATEGORIES_BY_SITE, key = "#site.id", unless = "#result.isEmpty()")
     public List<Category> getCategories(SiteEntity site) {
-        // Cette méthode sera appelée une fois par site et le résultat sera mis en cache
         return invoiceApi.listAllCategories(site);
     }
 }
-
@@ -0,0 +1,117 @@
+package fr.mismo.pennylane.service;
+
+import fr.mismo.pennylane.api.CustomerApi;
+import fr.mismo.pennylane.dao.entity.SiteEntity;
+import fr.mismo.pennylane.dto.Address;
+import fr.mismo.pennylane.dto.customer.Customer;
+import fr.mismo.pennylane.dto.customer.ResponseCustomer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Annuaire des clients Pennylane de chaque site, indexé par id et par compte comptable (ledger_account_id).
+ * Chargement et rafraîchissement : voir ReferentialDirectory.
+ */
+@Component
+public class CustomerDirectory extends ReferentialDirectory<Long, Long, Customer> {
+
+    @Autowired
+    private CustomerApi customerApi;
+
+    public CustomerDirectory() {
+        super("customers", "clients");
+    }
+
+    /**
+     * @return le client rattaché à ce compte comptable, ou null s'il n'en a pas
+     */
+    public Customer findByLedgerAccount(SiteEntity site, Long ledgerAccountId) {
+        return findByKey(site, ledgerAccountId);
+    }
+
+    /**
+     * Compare le client à envoyer (mapToCustomer) au client connu de Pennylane, sur les champs envoyés par updateCustomer.
+     * L'id, le compte comptable (retirés avant l'envoi) et la référence externe (tirée au hasard à chaque mapping)
+     * ne sont pas comparés ; une chaîne vide vaut un champ absent.
+     *
+     * @return true si la mise à jour ne changerait rien
+     */
+    static boolean isUpToDate(Customer wanted, Customer known) {
+        if (wanted == null || known == null) {
+            return false;
+        }
+        return same(wanted.getName(), known.getName())
+                && same(wanted.getBillingIban(), known.getBillingIban())
+                && same(wanted.getPaymentConditions(), known.getPaymentConditions())
+                && same(wanted.getRecipient(), known.getRecipient())
+                && same(wanted.getPhone(), known.getPhone())
+                && same(wanted.getReference(), known.getReference())
+                && same(wanted.getNotes(), known.getNotes())
+                && same(wanted.getVatNumber(), known.getVatNumber())
+                && same(wanted.getRegNo(), known.getRegNo())
+                && same(wanted.getBillingLanguage(), known.getBillingLanguage())
+                && (wanted.getEmails() == null || Objects.equals(wanted.getEmails(), known.getEmails()))
+                && same(wanted.getBillingAddress(), known.getBillingAddress())
+                && same(wanted.getDeliveryAddress(), known.getDeliveryAddress());
+    }
+
+    // Champ non envoyé (null) : laissé tel quel par la mise à jour
+    private static boolean same(String wanted, String known) {
+        return wanted == null || Objects.equals(emptyToNull(wanted), emptyToNull(known));
+    }
+
+    private static boolean same(Address wanted, Address known) {
+        if (wanted == null) {
+            return true;
+        }
+        Address other = known != null ? known : new Address();
+        return same(wanted.getAddress(), other.getAddress())
+                && same(wanted.getPostalCode(), other.getPostalCode())
+                && same(wanted.getCity(), other.getCity())
+                && same(wanted.getCountryAlpha2(), other.getCountryAlpha2());
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    @Override
+    protected List<Customer> listAll(SiteEntity site) {
+        return customerApi.listAllCustomers(site);
+    }
+
+    @Override
+    protected Customer retrieve(SiteEntity site, Long id) {
+        return customerApi.retrieveCustomer(String.valueOf(id), site);
+    }
+
+    @Override
+    protected Long idOf(Customer customer) {
+        return customer.getId();
+    }
+
+    @Override
+    protected Long changelogId(Long id) {
+        return id;
+    }
+
+    @Override
+    protected Long keyOf(Customer customer) {
+        return customer.getLedgerAccount() != null ? customer.getLedgerAccount().getId() : null;
+    }
+
+    @Override
+    protected Customer search(SiteEntity site, Long ledgerAccountId) {
+        ResponseCustomer found = customerApi.findCustomerByLedgerAccount(site, ledgerAccountId);
+        if (found == null || found.getItems() == null || found.getItems().isEmpty()) {
+            return null;
+        }
+        Customer first = found.getItems().getFirst();
+        Customer customer = customerApi.retrieveCustomer(String.valueOf(first.getId()), site);
+        // Relecture en échec : le client existe, l'élément de la recherche évite de le recréer
+        return customer != null ? customer : first;
+    }
+}
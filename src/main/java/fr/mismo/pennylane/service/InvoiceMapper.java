@@ -1,6 +1,5 @@
 package fr.mismo.pennylane.service;
 
-import fr.mismo.pennylane.api.AccountsApi;
 import fr.mismo.pennylane.dao.entity.SiteEntity;
 import fr.mismo.pennylane.dao.repository.LogRepository;
 import fr.mismo.pennylane.dto.accounting.Item;
@@ -31,7 +30,7 @@ public class InvoiceMapper {
     private LogRepository logRepository;
 
     @Autowired
-    AccountsApi accountsApi;
+    LedgerAccountIndex ledgerAccountIndex;
 
     /**
      * Mappe une liste de FactureDTO en un InvoiceWrapper
@@ -264,8 +263,7 @@ public class InvoiceMapper {
             String cpte = factureDTO.getCpte();
             if (cpte != null && !cpte.trim().isEmpty() && !cpte.equals("-1")) {
                 try {
-                    Item item = accountsApi.getLedgerAccountByNumber(
-                            removeTrailingZerosString(cpte), site);
+                    Item item = ledgerAccountIndex.findByNumber(site, cpte);
                     if (item != null && item.getId() != null) {
                         lineItem.setLedgerAccountId(String.valueOf(item.getId()));
                     }
@@ -7,18 +7,23 @@ import fr.mismo.pennylane.api.SupplierApi;
 import fr.mismo.pennylane.dao.entity.SiteEntity;
 import fr.mismo.pennylane.dao.repository.LogRepository;
 import fr.mismo.pennylane.dto.Document;
-import fr.mismo.pennylane.dto.accounting.Item;
 import fr.mismo.pennylane.dto.invoice.*;
 import fr.mismo.pennylane.dto.supplier.Supplier;
 import fr.mismo.pennylane.model.PaymentStatus;
+import fr.mismo.pennylane.model.SupplierInvoiceState;
 import fr.mismo.pennylane.settings.WsDocumentProperties;
 import fr.mismo.pennylane.util.ApiConstants;
+import fr.mismo.pennylane.util.CircuitBreakerRegistry;
+import fr.mismo.pennylane.util.CircuitOpenException;
+import fr.mismo.pennylane.util.EndpointFamily;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.HttpClientErrorException;
 
+import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -36,6 +41,9 @@ public class InvoiceService {
     @Autowired
     SupplierApi supplierApi;
 
+    @Autowired
+    SupplierDirectory supplierDirectory;
+
     @Autowired
     InvoiceApi invoiceApi;
 
@@ -48,14 +56,124 @@ public class InvoiceService {
     @Autowired
     LogHelper logHelper;
 
-    @Transactional
-    public void syncInvoice(final SupplierInvoiceResponse.SupplierInvoiceItem invoice, SiteEntity site,List<Long> categoryIds) {
+    @Autowired
+    CircuitBreakerRegistry circuitBreakers;
+
+    @Autowired
+    ReglementBatchWriter reglementBatchWriter;
+
+    @Autowired
+    ShortTransactions shortTransactions;
+
+    // Règlements d'une facture écrits en un appel (SP_PENNYLANE_SUPPLIER_INVOICE_CREER_REGLEMENT_LOT)
+    @Value("${sync.reglements.batch:true}")
+    private boolean reglementBatch = true;
+
+    // Familles d'appels sollicitées par l'import d'une facture fournisseur
+    private static final EndpointFamily[] SUPPLIER_INVOICE_FAMILIES = {
+            EndpointFamily.INVOICES, EndpointFamily.CUSTOMERS, EndpointFamily.LEDGER_ACCOUNTS, EndpointFamily.DOCUMENTS};
+
+    // Identifiants Pennylane par appel de SP_PENNYLANE_SUPPLIER_INVOICE_EXIST_LOT
+    private static final int FINGERPRINT_CHUNK_SIZE = 500;
+
+    /**
+     * Classe une page de factures d'achat avant tout traitement unitaire : un appel ensembliste
+     * par tranche de 500 identifiants au lieu d'un contrôle d'existence par facture.
+     *
+     * @return l'état de chaque facture, par id Pennylane ; vide si la lecture ensembliste échoue
+     */
+    public Map<Long, SupplierInvoiceState> classifySupplierInvoices(List<SupplierInvoiceResponse.SupplierInvoiceItem> invoices, SiteEntity site) {
+        List<String> ids = invoices.stream()
+                .map(SupplierInvoiceResponse.SupplierInvoiceItem::getId)
+                .filter(Objects::nonNull)
+                .map(String::valueOf)
+                .distinct()
+                .toList();
+
+        Map<String, SupplierInvoiceFingerprint> fingerprints = new HashMap<>();
+        try {
+            for (int i = 0; i < ids.size(); i += FINGERPRINT_CHUNK_SIZE) {
+                String keys = String.join(",", ids.subList(i, Math.min(ids.size(), i + FINGERPRINT_CHUNK_SIZE)));
+                for (SupplierInvoiceFingerprint fingerprint : logRepository.findSupplierInvoiceFingerprints(keys)) {
+                    fingerprints.put(fingerprint.getInvoiceId().trim(), fingerprint);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Lecture ensembliste des factures d'achat impossible pour le site {}, contrôle facture par facture : {}",
+                    site.getCode(), e.getMessage());
+            return Map.of();
+        }
+
+        String codSite = Optional.ofNullable(site.getCode()).map(String::trim).orElse("");
+        Map<Long, SupplierInvoiceState> states = new HashMap<>();
+        for (SupplierInvoiceResponse.SupplierInvoiceItem invoice : invoices) {
+            if (invoice.getId() != null) {
+                states.put(invoice.getId(), stateOf(invoice, fingerprints.get(String.valueOf(invoice.getId())), codSite));
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Compare la facture Pennylane aux valeurs qu'en a reportées SP_PENNYLANE_SUPPLIER_INVOICE_MAJ.
+     */
+    static SupplierInvoiceState stateOf(SupplierInvoiceResponse.SupplierInvoiceItem invoice, SupplierInvoiceFingerprint fingerprint, String codSite) {
+        if (fingerprint == null) {
+            return SupplierInvoiceState.NOUVELLE;
+        }
+        boolean unchanged = sameText(invoice.getLabel(), fingerprint.getObjet())
+                && sameText(invoice.getDate(), fingerprint.getDateFacture())
+                && sameText(codSite, fingerprint.getCodSite())
+                && sameAmount(invoice.getCurrencyAmountBeforeTax(), fingerprint.getTotalHt())
+                && sameAmount(invoice.getCurrencyAmount(), fingerprint.getTotalTtc())
+                && sameAmount(invoice.getCurrencyTax(), fingerprint.getTotalTva())
+                && sameText(invoice.getInvoiceNumber(), fingerprint.getInvoiceNumber());
+        return unchanged ? SupplierInvoiceState.INCHANGEE : SupplierInvoiceState.MODIFIEE;
+    }
+
+    private static boolean sameText(String pennylane, String atheneo) {
+        return Optional.ofNullable(pennylane).orElse("").trim().equals(Optional.ofNullable(atheneo).orElse("").trim());
+    }
+
+    // Montant illisible d'un côté ou de l'autre : considéré comme modifié
+    private static boolean sameAmount(String pennylane, BigDecimal atheneo) {
+        if (pennylane == null || atheneo == null) {
+            return false;
+        }
+        try {
+            return new BigDecimal(pennylane.trim()).compareTo(atheneo) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    public boolean syncInvoice(final SupplierInvoiceResponse.SupplierInvoiceItem invoice, SiteEntity site,List<Long> categoryIds) {
+        return syncInvoice(invoice, site, categoryIds, null);
+    }
+
+    /**
+     * @param state état issu de classifySupplierInvoices ; une facture connue comme existante n'est
+     *              pas recontrôlée, une facture nouvelle ou d'état inconnu (null) l'est avant sa création
+     *
+     * Non transactionnel : les appels Pennylane et l'import du PDF se font sans connexion JDBC détenue,
+     * la création ou la mise à jour de la facture est validée seule dans une transaction courte.
+     *
+     * @return false si la facture n'a pas été synchronisée (erreur relevée dans le forum) : elle est à relire au prochain passage
+     */
+    public boolean syncInvoice(final SupplierInvoiceResponse.SupplierInvoiceItem invoice, SiteEntity site, List<Long> categoryIds,
+                            SupplierInvoiceState state) {
         String traitement = "SYNC_INVOICE";
 
         if (invoice == null || site == null) {
             log.error("Impossible de synchroniser la facture: invoice ou site est null");
             logHelper.error(traitement, "[translate:Impossible de synchroniser la facture: invoice ou site est null]", null);
-            return;
+            return false;
+        }
+
+        // Disjoncteur ouvert : la facture n'est pas traitée et reste à importer au prochain passage
+        if (circuitBreakers.isOpen(site, SUPPLIER_INVOICE_FAMILIES)) {
+            throw new CircuitOpenException("Facture fournisseur " + invoice.getId()
+                    + " laissée en attente : disjoncteur ouvert pour le site " + site.getCode());
         }
 
         long start = logHelper.startTraitement(traitement);
@@ -67,7 +185,9 @@ public class InvoiceService {
             log.debug("/////// Début synchronisation d'une FACTURE D'ACHAT - ID: {} ///////", invoiceId);
             logHelper.info(traitement, "Début synchronisation d'une facture d'achat - ID: " + invoiceId);
 
-            Integer invoiceExists = logRepository.checkIfSupplierInvoiceExists(invoiceId);
+            Integer invoiceExists = state == SupplierInvoiceState.MODIFIEE || state == SupplierInvoiceState.INCHANGEE
+                    ? Integer.valueOf(1)
+                    : logRepository.checkIfSupplierInvoiceExists(invoiceId);
             log.debug("Vérification de l'existence de la facture - ID: {}, Existe déjà: {}", invoiceId, invoiceExists != null && invoiceExists > 0);
             logHelper.info(traitement, "Vérification existence facture ID: " + invoiceId + " - Existe déjà: " + (invoiceExists != null && invoiceExists > 0));
 
@@ -110,53 +230,36 @@ public class InvoiceService {
                 log.error(errMsg);
                 logHelper.error(traitement, errMsg, new NullPointerException("Supplier est null"));
                 processError(invoice, new NullPointerException("Supplier est null"));
-                return;
+                return false;
             }
 
-            Supplier supplier = supplierApi.retrieveSupplier(String.valueOf(invoice.getSupplier().getId()), site);
+            // Annuaire du site : pas d'appel Pennylane pour un fournisseur déjà connu
+            Supplier supplier = supplierDirectory.findById(site, invoice.getSupplier().getId());
 
             if (supplier == null) {
                 String errMsg = "Le fournisseur est null pour la facture ID: " + invoiceId;
                 log.error(errMsg);
                 logHelper.error(traitement, errMsg, new NullPointerException("Supplier est null"));
                 processError(invoice, new NullPointerException("Supplier est null"));
-                return;
+                return false;
             }
 
             String nomSociete = Optional.ofNullable(supplier.getName()).orElse("");
-            String supplierSourceId = Optional.of(supplier.getId().toString()).orElse("");
 
             log.debug("Informations fournisseur - InvoiceNumber: {}, Devise: {}, Nom: {}", invoiceNumber, devise, nomSociete);
             logHelper.info(traitement, String.format("Informations fournisseur - InvoiceNumber: %s, Devise: %s, Nom: %s", invoiceNumber, devise, nomSociete));
 
-            Supplier aSupplier;
-            try {
-                aSupplier = supplierApi.retrieveSupplier(supplierSourceId, site);
-                if (aSupplier == null) {
-                    String errMsg = "Impossible de récupérer les informations du fournisseur pour la facture ID: " + invoiceId;
-                    log.error(errMsg);
-                    logHelper.error(traitement, errMsg, new NullPointerException("SupplierWrapper ou Supplier est null"));
-                    processError(invoice, new NullPointerException("SupplierWrapper ou Supplier est null"));
-                    return;
-                }
-            } catch (Exception e) {
-                log.error("Erreur lors de la récupération du fournisseur pour la facture ID: {}", invoiceId, e);
-                logHelper.error(traitement, "Erreur récupération fournisseur facture ID: " + invoiceId, e);
-                processError(invoice, e);
-                return;
-            }
+            Supplier aSupplier = supplier;
 
             if (aSupplier.getLedgerAccount() == null) {
                 String errMsg = "LedgerAccount est null pour le fournisseur de la facture ID: " + invoiceId;
                 log.error(errMsg);
                 logHelper.error(traitement, errMsg, new NullPointerException("LedgerAccount est null"));
                 processError(invoice, new NullPointerException("LedgerAccount est null"));
-                return;
+                return false;
             }
 
-            Item ledger = accountsApi.getLedgerAccountById(aSupplier.getLedgerAccount().getId().toString(),site);
-
-            String noPlanItem = Optional.ofNullable(ledger.getNumber()).orElse("");
+            String noPlanItem = Optional.ofNullable(supplierDirectory.ledgerAccountNumber(site, aSupplier)).orElse("");
             String idPennylaneFourn = Optional.of(aSupplier.getId().toString()).orElse("");
             String idPennylaneFournV2 = Optional.of(aSupplier.getId().toString()).orElse("");
 
@@ -167,8 +270,8 @@ public class InvoiceService {
                 log.debug("Mise à jour de la facture existante - ID: {}", invoiceId);
                 logHelper.info(traitement, "Mise à jour facture existante - ID: " + invoiceId);
 
-                logRepository.majSupplierInvoice(noPlanItem, invoiceId, objet, dateFacture, codSite,
-                        totalHT, totalTTC, totalTVA, invoiceNumber, nomSociete);
+                shortTransactions.write("MAJ_SUPPLIER_INVOICE", () -> logRepository.majSupplierInvoice(noPlanItem, invoiceId, objet,
+                        dateFacture, codSite, totalHT, totalTTC, totalTVA, invoiceNumber, nomSociete));
             } else {
                 log.info("Création d'une nouvelle facture - ID: {} ...", invoiceId);
                 logHelper.info(traitement, "Création nouvelle facture - ID: " + invoiceId);
@@ -202,8 +305,11 @@ public class InvoiceService {
                 log.info("Création d'une nouvelle facture - ID: {} ...", invoiceId);
                 logHelper.info(traitement, "Création facture - ID: " + invoiceId + ", " + importMessage);
 
-                int retour = logRepository.creerSupplierInvoice(noPlanItem, idPennylaneFourn, idPennylaneFournV2, invoiceId, invoiceIdV2, objet, dateFacture, codSite,
-                        codDirection, codAgence, codEtat, totalHT, totalTTC, totalTVA, invoiceNumber, devise, nomSociete, importMessage);
+                String direction = codDirection;
+                String agence = codAgence;
+                int retour = shortTransactions.write("CREER_SUPPLIER_INVOICE", () -> logRepository.creerSupplierInvoice(noPlanItem,
+                        idPennylaneFourn, idPennylaneFournV2, invoiceId, invoiceIdV2, objet, dateFacture, codSite, direction, agence,
+                        codEtat, totalHT, totalTTC, totalTVA, invoiceNumber, devise, nomSociete, importMessage));
 
                 log.info("Facture créée avec succès - Retour ID: {}", retour);
                 logHelper.info(traitement, "Facture créée avec succès - Retour ID: " + retour);
@@ -218,10 +324,18 @@ public class InvoiceService {
                         doc.setTitle(objet);
                         doc.setNo(String.valueOf(retour));
 
-                        documentService.creerDocumentFromBase64(doc, wsDocumentProperties.getProprieteDocument().getAuteurDocument());
-
-                        log.info("Importation du PDF terminée - Facture ID: {}", invoiceId);
-                        logHelper.info(traitement, "Importation PDF terminée - Facture ID: " + invoiceId);
+                        try {
+                            circuitBreakers.execute(site, EndpointFamily.DOCUMENTS, () -> {
+                                documentService.creerDocumentFromBase64(doc, wsDocumentProperties.getProprieteDocument().getAuteurDocument());
+                                return null;
+                            });
+
+                            log.info("Importation du PDF terminée - Facture ID: {}", invoiceId);
+                            logHelper.info(traitement, "Importation PDF terminée - Facture ID: " + invoiceId);
+                        } catch (CircuitOpenException e) {
+                            log.warn("PDF non importé pour la facture - ID: {} : {}", invoiceId, e.getMessage());
+                            logHelper.warn(traitement, "PDF non importé (WSDocument indisponible) pour facture ID: " + invoiceId);
+                        }
                     } else {
                         log.warn("Document non récupéré pour la facture - ID: {}", invoiceId);
                         logHelper.warn(traitement, "Document non récupéré pour facture ID: " + invoiceId);
@@ -234,18 +348,21 @@ public class InvoiceService {
 
             log.debug("/////// Fin synchronisation d'une FACTURE D'ACHAT - ID: {} ///////", invoiceId);
             logHelper.info(traitement, "Fin synchronisation facture ID: " + invoiceId);
+            return true;
 
+        } catch (final CircuitOpenException e) {
+            throw e;
         } catch (final Exception e) {
             String invoiceId = invoice != null ? Optional.of(invoice.getId().toString()).orElse("UNKNOWN") : "UNKNOWN";
             log.error("/////// Erreur lors de la synchronisation d'une FACTURE D'ACHAT - ID: {} ///////", invoiceId, e);
             logHelper.error(traitement, "Erreur synchronisation facture ID: " + invoiceId, e);
             processError(invoice, e);
+            return false;
         } finally {
             logHelper.endTraitement(traitement, start);
         }
     }
 
-    @Transactional
     public void updateInvoice(String aFacture, SiteEntity aSite) {
         String traitement = "UPDATE_INVOICE";
 
@@ -294,14 +411,18 @@ public class InvoiceService {
                 }
             }
 
-            logRepository.traiterSupplierInvoiceBap(invoice.getId().toString(), "", updateSuccess);
+            boolean success = updateSuccess;
+            shortTransactions.write("TRAITER_SUPPLIER_INVOICE_BAP", () -> {
+                logRepository.traiterSupplierInvoiceBap(invoice.getId().toString(), "", success);
+                logRepository.ajouterLigneForum("A_FACTURE", aFacture, success
+                        ? "Statut de paiement mis à jour ou déjà à jour."
+                        : "Échec de la mise à jour du statut de paiement.", success ? 5 : 2);
+            });
 
             if (updateSuccess) {
-                logRepository.ajouterLigneForum("A_FACTURE", aFacture, "Statut de paiement mis à jour ou déjà à jour.", 5);
                 log.info("Statut de paiement traité pour la facture : {}", aFacture);
                 logHelper.info(traitement, "Statut de paiement traité - ID: " + aFacture);
             } else {
-                logRepository.ajouterLigneForum("A_FACTURE", aFacture, "Échec de la mise à jour du statut de paiement.", 2);
                 log.warn("Échec de la mise à jour du statut de paiement pour la facture : {}", aFacture);
                 logHelper.warn(traitement, "Échec mise à jour statut de paiement - ID: " + aFacture);
             }
@@ -318,7 +439,6 @@ public class InvoiceService {
         }
     }
 
-    @Transactional
     public void updateReglements(String aFacture, SiteEntity aSite) {
         String traitement = "UPDATE_REGLEMENTS";
 
@@ -389,18 +509,23 @@ public class InvoiceService {
             logHelper.info(traitement, String.format("Données règlements - Payé: %s, Statut: %s, Restant: %s, Payé le: %s, Total: %s",
                     isPaid, status, remainingAmount, fullyPaidAt, total));
 
-            int result = logRepository.majSupplierInvoiceReglement(
-                    isPaid, status, remainingAmount, fullyPaidAt, total, invoiceId, siteCode);
+            String paidAt = fullyPaidAt;
+            String details = String.format(
+                    "Mise à jour règlements. Payé: %s, Statut: %s, Restant: %s, Payé le: %s, Total: %s",
+                    isPaid, status, remainingAmount, fullyPaidAt, total
+            );
+            int result = shortTransactions.write("MAJ_REGLEMENTS", () -> {
+                int code = logRepository.majSupplierInvoiceReglement(
+                        isPaid, status, remainingAmount, paidAt, total, invoiceId, siteCode);
+                if (code == 1) {
+                    logRepository.ajouterLigneForum("V_FACTURE", aFacture, details, 2);
+                }
+                return code;
+            });
 
             if (result == 1) {
                 log.info("MAJ réussie des règlements - Facture ID: {}", invoiceId);
                 logHelper.info(traitement, "MAJ réussie des règlements pour facture ID: " + invoiceId);
-
-                String details = String.format(
-                        "Mise à jour règlements. Payé: %s, Statut: %s, Restant: %s, Payé le: %s, Total: %s",
-                        isPaid, status, remainingAmount, fullyPaidAt, total
-                );
-                logRepository.ajouterLigneForum("V_FACTURE", aFacture, details, 2);
             } else {
                 log.trace("MAJ échouée pour la facture - ID: {}", invoiceId);
                 logHelper.warn(traitement, "MAJ échouée des règlements pour facture ID: " + invoiceId);
@@ -420,7 +545,6 @@ public class InvoiceService {
         }
     }
 
-    @Transactional
     public void updateReglementsV2(String aFacture, SiteEntity aSite) {
         String traitement = "UPDATE_REGLEMENTS_V2";
 
@@ -461,6 +585,54 @@ public class InvoiceService {
                 logHelper.info(traitement, "Aucune transaction à synchroniser pour la facture " + invoiceId);
             }
 
+            // Appels Pennylane terminés : purge et règlements validés ensemble dans une transaction courte
+            List<Transaction> matched = transactions;
+            shortTransactions.write("REGLEMENTS", () -> writeReglements(traitement, invoiceId, matched));
+
+            log.debug("/////// Fin MAJ des REGLEMENTS - Facture ID: {} ///////", invoiceId);
+            logHelper.info(traitement, "Fin mise à jour règlements facture ID: " + invoiceId);
+
+        } catch (Exception e) {
+            logRepository.ajouterLigneForum(
+                    "A_FACTURE", aFacture, "Erreur lors de la MAJ des REGLEMENTS pour la facture: " + e.getMessage(), 2
+            );
+            log.error("Erreur lors de la MAJ des REGLEMENTS pour la facture - ID: {}", aFacture, e);
+            logHelper.error(traitement, "Erreur mise à jour règlements facture ID: " + aFacture, e);
+        } finally {
+            logHelper.endTraitement(traitement, start);
+        }
+    }
+
+    /**
+     * Écritures Athénéo des règlements d'une facture : purge des transactions obsolètes puis création des règlements.
+     */
+    private void writeReglements(String traitement, String invoiceId, List<Transaction> transactions) {
+        if (reglementBatch && !transactions.isEmpty()) {
+            // Purge et règlements de la facture en un seul appel
+            Map<Long, Transaction> byId = new HashMap<>();
+            List<ReglementBatchWriter.Ligne> lignes = new ArrayList<>();
+            for (Transaction transaction : transactions) {
+                byId.put(transaction.getId(), transaction);
+                lignes.add(new ReglementBatchWriter.Ligne(invoiceId, transaction.getId(),
+                        parseDoubleSafe(transaction.getAmount(), 0), transaction.getCreatedAt()));
+            }
+
+            for (ReglementResult result : reglementBatchWriter.write(lignes)) {
+                int code = result.getResult() != null ? result.getResult() : -99;
+                if (ReglementResult.OPERATION_PURGE.equals(result.getOperation())) {
+                    if (code != 1) {
+                        String warnMsg = "Purge des transactions obsolètes n'a pas abouti pour la facture " + invoiceId + " - Code retour: " + code;
+                        log.warn(warnMsg);
+                        logHelper.warn(traitement, warnMsg);
+                    }
+                } else {
+                    Transaction transaction = byId.get(result.getTransactionId());
+                    logReglementResult(traitement, invoiceId, result.getTransactionId(),
+                            transaction != null ? parseDoubleSafe(transaction.getAmount(), 0) : null,
+                            transaction != null ? transaction.getCreatedAt() : null, code);
+                }
+            }
+        } else {
             List<Long> transactionIdsMetier = transactions.stream()
                     .map(Transaction::getId)
                     .collect(Collectors.toList());
@@ -490,37 +662,30 @@ public class InvoiceService {
                         dateTransaction
                 );
 
-                switch (result) {
-                    case 1:
-                        String infoMsg = String.format("Règlement créé pour la facture %s - Montant: %s, Date: %s, Transaction ID: %s",
-                                invoiceId, montantTransaction, dateTransaction, transactionId);
-                        log.info(infoMsg);
-                        logHelper.info(traitement, infoMsg);
-                        break;
-                    case -3:
-                        log.debug("Transaction déjà synchronisée pour la facture {} - Transaction ID: {}", invoiceId, transactionId);
-                        logHelper.info(traitement, "Transaction déjà synchronisée facture " + invoiceId + " - Transaction ID: " + transactionId);
-                        break;
-                    default:
-                        String warnMsg = String.format("La mise à jour des règlements n'a pas abouti pour la facture %s - Transaction ID: %s - Code retour: %d",
-                                invoiceId, transactionId, result);
-                        log.warn(warnMsg);
-                        logHelper.warn(traitement, warnMsg);
-                        break;
-                }
+                logReglementResult(traitement, invoiceId, transactionId, montantTransaction, dateTransaction, result);
             }
+        }
+    }
 
-            log.debug("/////// Fin MAJ des REGLEMENTS - Facture ID: {} ///////", invoiceId);
-            logHelper.info(traitement, "Fin mise à jour règlements facture ID: " + invoiceId);
-
-        } catch (Exception e) {
-            logRepository.ajouterLigneForum(
-                    "A_FACTURE", aFacture, "Erreur lors de la MAJ des REGLEMENTS pour la facture: " + e.getMessage(), 2
-            );
-            log.error("Erreur lors de la MAJ des REGLEMENTS pour la facture - ID: {}", aFacture, e);
-            logHelper.error(traitement, "Erreur mise à jour règlements facture ID: " + aFacture, e);
-        } finally {
-            logHelper.endTraitement(traitement, start);
+    private void logReglementResult(String traitement, String invoiceId, Long transactionId,
+                                    Double montantTransaction, String dateTransaction, int result) {
+        switch (result) {
+            case 1:
+                String infoMsg = String.format("Règlement créé pour la facture %s - Montant: %s, Date: %s, Transaction ID: %s",
+                        invoiceId, montantTransaction, dateTransaction, transactionId);
+                log.info(infoMsg);
+                logHelper.info(traitement, infoMsg);
+                break;
+            case -3:
+                log.debug("Transaction déjà synchronisée pour la facture {} - Transaction ID: {}", invoiceId, transactionId);
+                logHelper.info(traitement, "Transaction déjà synchronisée facture " + invoiceId + " - Transaction ID: " + transactionId);
+                break;
+            default:
+                String warnMsg = String.format("La mise à jour des règlements n'a pas abouti pour la facture %s - Transaction ID: %s - Code retour: %d",
+                        invoiceId, transactionId, result);
+                log.warn(warnMsg);
+                logHelper.warn(traitement, warnMsg);
+                break;
         }
     }
 
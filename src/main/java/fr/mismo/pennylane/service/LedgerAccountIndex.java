@@ -0,0 +1,132 @@
+package fr.mismo.pennylane.service;
+
+import fr.mismo.pennylane.api.AccountsApi;
+import fr.mismo.pennylane.dao.entity.SiteEntity;
+import fr.mismo.pennylane.dto.accounting.Item;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Plan comptable Pennylane de chaque site, indexé par numéro et par id.
+ *
+ * Chargé une fois par passage (listAllLedgerAccounts) puis complété au fil des créations,
+ * il remplace les parcours de liste et les appels getLedgerAccountByNumber ligne par ligne
+ * d'AccountingService, InvoiceMapper et TiersMapper.
+ *
+ * Les numéros sont comparés sans les zéros de fin (411000 = 411), après essai du numéro exact.
+ */
+@Component
+@Slf4j
+public class LedgerAccountIndex {
+
+    @Autowired
+    private AccountsApi accountsApi;
+
+    private final Map<Integer, SiteLedger> ledgersBySite = new ConcurrentHashMap<>();
+
+    private static final class SiteLedger {
+        private final Map<String, Item> byNumber = new ConcurrentHashMap<>();
+        private final Map<String, Item> byNormalizedNumber = new ConcurrentHashMap<>();
+        private final Map<Long, Item> byId = new ConcurrentHashMap<>();
+
+        void add(Item item) {
+            if (item == null) {
+                return;
+            }
+            if (item.getNumber() != null) {
+                byNumber.putIfAbsent(item.getNumber(), item);
+                byNormalizedNumber.putIfAbsent(normalize(item.getNumber()), item);
+            }
+            if (item.getId() != null) {
+                byId.put(item.getId().longValue(), item);
+            }
+        }
+
+        Item findByNumber(String number) {
+            Item exact = byNumber.get(number);
+            return exact != null ? exact : byNormalizedNumber.get(normalize(number));
+        }
+    }
+
+    /**
+     * (Re)construit l'index du site à partir du plan comptable déjà récupéré.
+     */
+    public void load(SiteEntity site, List<Item> accounts) {
+        SiteLedger ledger = new SiteLedger();
+        accounts.forEach(ledger::add);
+        ledgersBySite.put(site.getId(), ledger);
+        log.debug("Plan comptable du site {} indexé : {} comptes", site.getCode(), ledger.byId.size());
+    }
+
+    /**
+     * Construit l'index du site à partir de cette liste s'il n'existe pas encore.
+     */
+    public void loadIfAbsent(SiteEntity site, List<Item> accounts) {
+        if (!ledgersBySite.containsKey(site.getId())) {
+            load(site, accounts);
+        }
+    }
+
+    /**
+     * Compte créé pendant le traitement : visible immédiatement pour les lignes suivantes.
+     */
+    public void add(SiteEntity site, Item item) {
+        ledger(site).add(item);
+    }
+
+    /**
+     * @return le compte de ce numéro (exact, sinon sans les zéros de fin), ou null
+     */
+    public Item findByNumber(SiteEntity site, String number) {
+        if (number == null || number.isBlank()) {
+            return null;
+        }
+        return ledger(site).findByNumber(number.trim());
+    }
+
+    /**
+     * @return le compte de cet id ; absent de l'index (créé depuis le chargement), il est lu puis ajouté
+     */
+    public Item findById(SiteEntity site, Long id) {
+        if (id == null) {
+            return null;
+        }
+        SiteLedger ledger = ledger(site);
+        Item item = ledger.byId.get(id);
+        if (item == null) {
+            item = accountsApi.getLedgerAccountById(String.valueOf(id), site);
+            ledger.add(item);
+        }
+        return item;
+    }
+
+    /**
+     * Numéro sans zéros de fin, sans expression régulière (appelé pour chaque ligne).
+     */
+    public static String normalize(String number) {
+        if (number == null) {
+            return "";
+        }
+        String trimmed = number.trim();
+        int end = trimmed.length();
+        while (end > 0 && trimmed.charAt(end - 1) == '0') {
+            end--;
+        }
+        return trimmed.substring(0, end);
+    }
+
+    // Site jamais chargé par un passage (appel hors scheduler) : chargement complet à la première demande
+    private SiteLedger ledger(SiteEntity site) {
+        return ledgersBySite.computeIfAbsent(site.getId(), id -> {
+            SiteLedger ledger = new SiteLedger();
+            accountsApi.listAllLedgerAccounts(site).forEach(ledger::add);
+            log.debug("Plan comptable du site {} chargé à la demande : {} comptes", site.getCode(), ledger.byId.size());
+            return ledger;
+        });
+    }
+}
@@ -2,7 +2,7 @@ package fr.mismo.pennylane.service;
 
 
 import fr.mismo.pennylane.dao.entity.LogEntity;
-import fr.mismo.pennylane.dao.repository.LogRepository;
+import fr.mismo.pennylane.settings.LogCallerProperties;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,12 +13,22 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.Date;
+import java.util.Optional;
 
 @Component
 public class LogHelper {
 
     @Autowired
-    private LogRepository logRepository;
+    private LogWriter logWriter;
+
+    @Autowired
+    private LogCallerProperties callerProperties;
+
+    // Parcours paresseux de la pile : seules les premières frames sont matérialisées
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private static final int CLASSE_MAX_LENGTH = 200;
+    private static final int METHODE_MAX_LENGTH = 100;
 
     @Value("${spring.application.name:GLPI}")
     private String applicationName;
@@ -76,7 +86,7 @@ public class LogHelper {
         logEntity.setMessage(String.format("%s %s - Code: %d - Durée: %dms",
                 methodeHttp, url, codeRetour, dureeMs));
 
-        logRepository.save(logEntity);
+        logWriter.write(logEntity);
     }
 
     /**
@@ -103,7 +113,7 @@ public class LogHelper {
             enrichirAvecInfoStack(logEntity);
         }
 
-        logRepository.save(logEntity);
+        logWriter.write(logEntity);
     }
 
     /**
@@ -133,23 +143,34 @@ public class LogHelper {
     }
 
     /**
-     * Enrichit le log avec les informations de la stack d'appel
+     * Enrichit le log avec la classe et la méthode appelantes (première frame hors LogHelper),
+     * sauf pour les lignes INFO si Log.caller.enrichInfo est désactivé
      */
     private void enrichirAvecInfoStack(LogEntity logEntity) {
-        StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
-
-        // Trouver le premier élément qui n'est pas cette classe
-        for (StackTraceElement element : stackTrace) {
-            String className = element.getClassName();
-            if (!className.equals(this.getClass().getName()) &&
-                    !className.startsWith("java.") &&
-                    !className.startsWith("sun.")) {
-
-                logEntity.setClasse(className);
-                logEntity.setMethode(element.getMethodName());
-                break;
-            }
+        if ("INFO".equals(logEntity.getNiveau()) && !Boolean.TRUE.equals(callerProperties.getEnrichInfo())) {
+            return;
         }
+
+        Optional<StackWalker.StackFrame> caller = STACK_WALKER.walk(frames -> frames
+                .filter(frame -> !isIgnoredFrame(frame.getClassName()))
+                .findFirst());
+
+        // Tronqué aux longueurs des colonnes CLASSE / METHODE
+        caller.ifPresent(frame -> {
+            logEntity.setClasse(truncate(frame.getClassName(), CLASSE_MAX_LENGTH));
+            logEntity.setMethode(truncate(frame.getMethodName(), METHODE_MAX_LENGTH));
+        });
+    }
+
+    private boolean isIgnoredFrame(String className) {
+        return className.equals(LogHelper.class.getName())
+                || className.startsWith("java.")
+                || className.startsWith("jdk.")
+                || className.startsWith("sun.");
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value.length() > maxLength ? value.substring(0, maxLength) : value;
     }
 
     /**
@@ -217,6 +238,6 @@ public class LogHelper {
         enrichirAvecContexteHttp(logEntity);
         enrichirAvecInfoStack(logEntity);
 
-        logRepository.save(logEntity);
+        logWriter.write(logEntity);
     }
 }
\ No newline at end of file
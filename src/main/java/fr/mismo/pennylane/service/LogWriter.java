@@ -0,0 +1,243 @@
+package fr.mismo.pennylane.service;
+
+import fr.mismo.pennylane.dao.entity.LogEntity;
+import fr.mismo.pennylane.dao.repository.LogRepository;
+import fr.mismo.pennylane.settings.LogWriterProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Écriture asynchrone des lignes de la table LOG.
+ *
+ * LogHelper dépose les lignes dans une file bornée ; un thread dédié les insère par lots JDBC
+ * (batchSize lignes ou flushIntervalMs au plus tard). Les threads métier ne font plus d'aller-retour
+ * SQL Server par ligne de diagnostic, et les logs ne suivent plus le rollback des transactions métier.
+ * La file est vidée à l'arrêt de l'application.
+ */
+@Component
+@Slf4j
+public class LogWriter {
+
+    private static final String INSERT_LOG = "INSERT INTO LOG (DATE_LOG, NIVEAU, TRAITEMENT, INITIATEUR, ID_SESSION_SQL, "
+            + "MESSAGE, CLASSE, METHODE, STACK_TRACE, IP_SOURCE, URL_APPELLEE, METHODE_HTTP, CODE_RETOUR_HTTP, "
+            + "DUREE_MS, TRAME_REQUETE, TRAME_REPONSE, ENVIRONNEMENT, APPLICATION) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private LogWriterProperties properties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LogRepository logRepository;
+
+    private BlockingQueue<LogEntity> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile long lastFlushMs;
+
+    @PostConstruct
+    void start() {
+        if (!Boolean.TRUE.equals(properties.getEnabled())) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+        running = true;
+        flusher = Thread.ofPlatform().name("log-writer").daemon(true).start(this::run);
+    }
+
+    /**
+     * Dépose une ligne de log ; écrite immédiatement si l'écriture asynchrone est désactivée.
+     */
+    public void write(LogEntity logEntity) {
+        if (queue == null || !running) {
+            saveNow(logEntity);
+            return;
+        }
+        if (queue.offer(logEntity)) {
+            return;
+        }
+        switch (properties.getOverflowPolicy()) {
+            case SYNCHRONE -> saveNow(logEntity);
+            case ABANDONNER -> drop(logEntity);
+            case ATTENDRE -> {
+                try {
+                    if (!queue.offer(logEntity, properties.getOfferTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                        drop(logEntity);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    drop(logEntity);
+                }
+            }
+        }
+    }
+
+    private void run() {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(properties.getFlushIntervalMs());
+        List<LogEntity> batch = new ArrayList<>(batchSize);
+
+        while (running) {
+            try {
+                LogEntity first = queue.poll(properties.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Complète le lot jusqu'à batchSize lignes, sans attendre plus de flushIntervalMs
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    LogEntity next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+
+            insert(batch);
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        try {
+            flusher.join(properties.getShutdownTimeoutMs());
+            if (flusher.isAlive()) {
+                flusher.interrupt();
+                flusher.join(properties.getShutdownTimeoutMs());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Lignes restées dans la file : écrites par le thread d'arrêt
+        List<LogEntity> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        int batchSize = Math.max(1, properties.getBatchSize());
+        for (int i = 0; i < remaining.size(); i += batchSize) {
+            insert(remaining.subList(i, Math.min(remaining.size(), i + batchSize)));
+        }
+        log.info("Écriture des logs arrêtée : {} lignes écrites, {} abandonnées, {} en erreur",
+                written.get(), dropped.get(), failed.get());
+    }
+
+    private void insert(List<LogEntity> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            jdbcTemplate.batchUpdate(INSERT_LOG, batch, batch.size(), this::bind);
+            written.addAndGet(batch.size());
+        } catch (Exception e) {
+            // Une ligne invalide ne doit pas faire perdre tout le lot : reprise ligne à ligne
+            log.warn("Échec de l'insertion d'un lot de {} logs, reprise ligne à ligne : {}", batch.size(), e.getMessage());
+            for (LogEntity logEntity : batch) {
+                try {
+                    jdbcTemplate.update(INSERT_LOG, ps -> bind(ps, logEntity));
+                    written.incrementAndGet();
+                } catch (Exception rowError) {
+                    failed.incrementAndGet();
+                    log.error("Log non enregistré ({} - {}) : {}", logEntity.getTraitement(), logEntity.getMessage(), rowError.getMessage());
+                }
+            }
+        }
+        batches.incrementAndGet();
+        lastFlushMs = System.currentTimeMillis() - start;
+    }
+
+    private void bind(PreparedStatement ps, LogEntity logEntity) throws SQLException {
+        ps.setTimestamp(1, logEntity.getDateLog() != null ? new Timestamp(logEntity.getDateLog().getTime()) : null);
+        ps.setObject(2, logEntity.getNiveau(), Types.VARCHAR);
+        ps.setObject(3, logEntity.getTraitement(), Types.VARCHAR);
+        ps.setObject(4, logEntity.getInitiateur(), Types.VARCHAR);
+        ps.setObject(5, logEntity.getIdSessionSql(), Types.SMALLINT);
+        ps.setObject(6, logEntity.getMessage(), Types.VARCHAR);
+        ps.setObject(7, logEntity.getClasse(), Types.VARCHAR);
+        ps.setObject(8, logEntity.getMethode(), Types.VARCHAR);
+        ps.setObject(9, logEntity.getStackTrace(), Types.VARCHAR);
+        ps.setObject(10, logEntity.getIpSource(), Types.VARCHAR);
+        ps.setObject(11, logEntity.getUrlAppellee(), Types.VARCHAR);
+        ps.setObject(12, logEntity.getMethodeHttp(), Types.VARCHAR);
+        ps.setObject(13, logEntity.getCodeRetourHttp(), Types.INTEGER);
+        ps.setObject(14, logEntity.getDureeMs(), Types.BIGINT);
+        ps.setObject(15, logEntity.getTrameRequete(), Types.VARCHAR);
+        ps.setObject(16, logEntity.getTrameReponse(), Types.VARCHAR);
+        ps.setObject(17, logEntity.getEnvironnement(), Types.VARCHAR);
+        ps.setObject(18, logEntity.getApplication(), Types.VARCHAR);
+    }
+
+    private void saveNow(LogEntity logEntity) {
+        try {
+            logRepository.save(logEntity);
+            written.incrementAndGet();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            log.error("Log non enregistré ({} - {}) : {}", logEntity.getTraitement(), logEntity.getMessage(), e.getMessage());
+        }
+    }
+
+    private void drop(LogEntity logEntity) {
+        long count = dropped.incrementAndGet();
+        // Une trace applicative toutes les 1000 lignes abandonnées, pas une par ligne
+        if (count % 1000 == 1) {
+            log.warn("File des logs pleine : {} lignes abandonnées depuis le démarrage (dernière : {} - {})",
+                    count, logEntity.getTraitement(), logEntity.getMessage());
+        }
+    }
+
+    /**
+     * Compteurs de l'écriture des logs, pour le dashboard.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", queue != null);
+        stats.put("pending", queue != null ? queue.size() : 0);
+        stats.put("capacity", properties.getQueueCapacity());
+        stats.put("written", written.get());
+        stats.put("batches", batches.get());
+        stats.put("dropped", dropped.get());
+        stats.put("failed", failed.get());
+        stats.put("lastFlushMs", lastFlushMs);
+        return stats;
+    }
+}
@@ -5,6 +5,8 @@ import com.itextpdf.text.pdf.PdfPCell;
 import com.itextpdf.text.pdf.PdfPTable;
 import com.itextpdf.text.pdf.PdfWriter;
 import com.itextpdf.text.pdf.draw.LineSeparator;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import fr.mismo.pennylane.api.HttpPoolMonitor;
 import fr.mismo.pennylane.dao.entity.ForumEntity;
 import fr.mismo.pennylane.dao.entity.ForumLigneEntity;
 import fr.mismo.pennylane.dao.entity.LogEntity;
@@ -15,9 +17,14 @@ import fr.mismo.pennylane.dao.repository.LogRepository;
 import fr.mismo.pennylane.dao.repository.SynchroRepository;
 import fr.mismo.pennylane.dto.LogDTO;
 import fr.mismo.pennylane.settings.ConfigLogs;
+import fr.mismo.pennylane.util.CircuitBreakerRegistry;
+import fr.mismo.pennylane.util.RetryPolicy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -49,6 +56,30 @@ public class LogsService {
     @Autowired
     ConfigLogs configLogs;
 
+    @Autowired
+    HttpPoolMonitor httpPoolMonitor;
+
+    @Autowired
+    RetryPolicy retryPolicy;
+
+    @Autowired
+    CircuitBreakerRegistry circuitBreakers;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    LogWriter logWriter;
+
+    @Autowired
+    ShortTransactions shortTransactions;
+
+    @Autowired
+    SyncExecutor syncExecutor;
+
+    @Autowired
+    SyncWatermarkService syncWatermarkService;
+
     // SYNCHRO MARQUAGE.
     public void ajoutMarquage(String entite, String noEntite, String info, String refExt) {
         try {
@@ -268,9 +299,61 @@ public class LogsService {
         long totalLogs = logRepository.count();
         stats.put("totalLogs", totalLogs);
 
+        // Occupation du pool de connexions HTTP Pennylane
+        stats.put("httpPool", httpPoolMonitor.getTotalStats());
+        stats.put("httpPoolRoutes", httpPoolMonitor.getRouteStats());
+
+        // Rejeux des appels Pennylane (429, 5xx, erreurs réseau)
+        stats.put("retryStats", retryPolicy.getStats());
+
+        // Disjoncteurs par site et famille d'appels
+        stats.put("circuitBreakers", circuitBreakers.getStates());
+
+        // Caches des référentiels Pennylane
+        stats.put("cacheStats", getCacheStats());
+
+        // Écriture asynchrone de la table LOG
+        stats.put("logWriter", logWriter.getStats());
+
+        // Pool JDBC et durées de détention des connexions par les transactions courtes
+        stats.put("dbPool", shortTransactions.getPoolStats());
+        stats.put("transactions", shortTransactions.getStats());
+
+        // Durées des traitements planifiés par site
+        stats.put("siteTimings", syncExecutor.getSiteStats());
+
+        // Points de reprise des synchronisations incrémentales
+        stats.put("watermarks", syncWatermarkService.getWatermarks());
+
         return stats;
     }
 
+    /**
+     * Statistiques de chaque cache de référentiel : succès, échecs, chargements et évictions.
+     */
+    private List<Map<String, Object>> getCacheStats() {
+        List<Map<String, Object>> caches = new ArrayList<>();
+        for (String name : new TreeSet<>(cacheManager.getCacheNames())) {
+            Cache cache = cacheManager.getCache(name);
+            if (!(cache instanceof CaffeineCache caffeineCache)) {
+                continue;
+            }
+            CacheStats cacheStats = caffeineCache.getNativeCache().stats();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("name", name);
+            row.put("size", caffeineCache.getNativeCache().estimatedSize());
+            row.put("hits", cacheStats.hitCount());
+            row.put("misses", cacheStats.missCount());
+            row.put("hitRate", String.format("%.1f %%", cacheStats.hitRate() * 100));
+            row.put("loads", cacheStats.loadCount());
+            row.put("loadFailures", cacheStats.loadFailureCount());
+            row.put("averageLoadMs", Math.round(cacheStats.averageLoadPenalty() / 1_000_000));
+            row.put("evictions", cacheStats.evictionCount());
+            caches.add(row);
+        }
+        return caches;
+    }
+
     // Générer un PDF pour un log
     public byte[] generateLogPdf(LogDTO log) throws DocumentException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -0,0 +1,166 @@
+package fr.mismo.pennylane.service;
+
+import fr.mismo.pennylane.dao.entity.CourrierEntity;
+import fr.mismo.pennylane.dao.repository.CourrierRepository;
+import fr.mismo.pennylane.dao.repository.FactureRepository;
+import fr.mismo.pennylane.dao.repository.ProductRepository;
+import fr.mismo.pennylane.dao.repository.SocieteRepository;
+import fr.mismo.pennylane.dto.ath.Tiers;
+import fr.mismo.pennylane.dto.invoice.FactureDTO;
+import fr.mismo.pennylane.dto.product.Product;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Lectures Athénéo d'un lot d'écritures (procédures stockées), chargées une seule fois
+ * et partagées par les étapes produits / facture / courrier / client de syncEcriture.
+ *
+ * Créé au début du lot et abandonné à sa fin : rien n'est conservé d'un lot à l'autre.
+ * prefetch() charge tout le lot en quelques appels ensemblistes (procédures *_LOT) ;
+ * une clé absente de leur résultat est relue unitairement à la première demande, sauf pour les
+ * courriers : sans procédure spécifique, la procédure *_LOT fait foi et une facture sans courrier
+ * y est mémorisée comme telle.
+ * Les objets rendus sont partagés : une mise à jour faite par une étape (id Pennylane
+ * d'un produit ou d'un client) est vue par les pièces suivantes du lot.
+ *
+ * Les étapes de l'export en chaîne (PiecePipeline) le lisent chacune depuis leur thread : tables
+ * concurrentes, lecture unitaire faite hors de tout verrou (pas d'épinglage du thread virtuel
+ * pendant l'appel JDBC). Deux étapes peuvent relire la même clé ; la première lecture mémorisée fait foi.
+ */
+class LotContext {
+
+    private final FactureRepository factureRepository;
+    private final SocieteRepository societeRepository;
+    private final ProductRepository productRepository;
+    private final CourrierRepository courrierRepository;
+    private final ShortTransactions shortTransactions;
+
+    // Nombre de clés par appel ensembliste
+    private static final int PREFETCH_CHUNK_SIZE = 500;
+
+    private final Map<Integer, List<FactureDTO>> factures = new ConcurrentHashMap<>();
+    // Résultat null (tiers ou produit introuvable) mémorisé lui aussi
+    private final Map<String, Optional<Tiers>> tiers = new ConcurrentHashMap<>();
+    private final Map<Integer, Optional<Product>> products = new ConcurrentHashMap<>();
+    private final Map<Integer, Optional<CourrierEntity>> courriers = new ConcurrentHashMap<>();
+
+    LotContext(FactureRepository factureRepository, SocieteRepository societeRepository,
+               ProductRepository productRepository, CourrierRepository courrierRepository,
+               ShortTransactions shortTransactions) {
+        this.factureRepository = factureRepository;
+        this.societeRepository = societeRepository;
+        this.productRepository = productRepository;
+        this.courrierRepository = courrierRepository;
+        this.shortTransactions = shortTransactions;
+    }
+
+    /**
+     * Charge les lignes de factures, courriers, tiers et produits des factures du lot :
+     * quelques exécutions de procédure pour tout le lot au lieu de plusieurs par facture.
+     */
+    void prefetch(Collection<Integer> noVFactures, String codSite) {
+        List<Integer> factureKeys = noVFactures.stream().filter(Objects::nonNull).distinct().toList();
+        // Procédure spécifique : le lot ne renvoie rien, chaque courrier est relu unitairement via spe_
+        boolean courrierLotComplet = factureKeys.isEmpty() || courrierRepository.exportFactureCourrierSpecifique() == 0;
+
+        for (List<Integer> chunk : chunks(factureKeys)) {
+            String keys = csv(chunk);
+            factures.putAll(factureRepository.getFacturesLot(keys).stream()
+                    .collect(Collectors.groupingBy(line -> Integer.valueOf(line.getNoVFacture().trim()))));
+            if (!courrierLotComplet) {
+                continue;
+            }
+            for (Object[] row : courrierRepository.callExportFactureCourrierLot(keys)) {
+                courriers.put((Integer) row[1], Optional.of((CourrierEntity) row[0]));
+            }
+            // Facture sans courrier : absence mémorisée, pas d'appel unitaire à la première demande
+            for (Integer key : chunk) {
+                courriers.putIfAbsent(key, Optional.empty());
+            }
+        }
+
+        List<FactureDTO> lines = factures.values().stream().flatMap(List::stream).toList();
+
+        List<Integer> societeKeys = lines.stream().map(FactureDTO::getNoSociete).filter(Objects::nonNull).distinct().toList();
+        for (List<Integer> chunk : chunks(societeKeys)) {
+            for (Object[] row : societeRepository.getTiersLot(csv(chunk), codSite)) {
+                tiers.put(row[1] + "|" + codSite, Optional.ofNullable((Tiers) row[0]));
+            }
+        }
+
+        List<Integer> produitKeys = lines.stream().map(FactureDTO::getNoProduit).filter(Objects::nonNull).distinct().toList();
+        for (List<Integer> chunk : chunks(produitKeys)) {
+            for (Product product : productRepository.getProductsLot(csv(chunk))) {
+                products.put(Integer.valueOf(product.getExternalReference().trim()), Optional.of(product));
+            }
+        }
+    }
+
+    List<FactureDTO> getFacture(int noVFacture) {
+        return cached(factures, noVFacture, factureRepository::getFacture);
+    }
+
+    Tiers getTiers(int noSociete, String codSite) {
+        return cached(tiers, noSociete + "|" + codSite,
+                key -> Optional.ofNullable(societeRepository.getTiers(noSociete, codSite))).orElse(null);
+    }
+
+    Product getProduct(int noProduit) {
+        return cached(products, noProduit, no -> Optional.ofNullable(productRepository.getProduct(no))).orElse(null);
+    }
+
+    Optional<CourrierEntity> getCourrier(int noVFacture) {
+        // Résultat lu en flux : la procédure doit s'exécuter dans une transaction
+        return cached(courriers, noVFacture, no -> shortTransactions.read("EXPORT_COURRIER", () -> {
+            try (Stream<CourrierEntity> stream = courrierRepository.callExportFactureCourrier(no)) {
+                return stream.findFirst();
+            }
+        }));
+    }
+
+    /**
+     * Libère les lectures propres à une facture envoyée ; tiers et produits restent partagés par le lot.
+     */
+    void release(Integer noVFacture) {
+        factures.remove(noVFacture);
+        courriers.remove(noVFacture);
+    }
+
+    /**
+     * Valeur mémorisée de la clé, sinon lue hors de la table puis mémorisée (une lecture null ne l'est pas).
+     * Pas de computeIfAbsent : il tiendrait le verrou de la table pendant l'appel JDBC.
+     */
+    private static <K, V> V cached(Map<K, V> map, K key, Function<K, V> loader) {
+        V value = map.get(key);
+        if (value != null) {
+            return value;
+        }
+        V loaded = loader.apply(key);
+        if (loaded == null) {
+            return null;
+        }
+        V previous = map.putIfAbsent(key, loaded);
+        return previous != null ? previous : loaded;
+    }
+
+    private static List<List<Integer>> chunks(List<Integer> keys) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i += PREFETCH_CHUNK_SIZE) {
+            chunks.add(keys.subList(i, Math.min(keys.size(), i + PREFETCH_CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
+    private static String csv(List<Integer> keys) {
+        return keys.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,210 @@
+package fr.mismo.pennylane.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Chaîne d'étapes appliquée aux pièces d'un lot, chaque étape sur son propre thread virtuel,
+ * reliées par des files bornées : la pièce N+1 avance dans les premières étapes pendant que
+ * la pièce N est dans les suivantes.
+ *
+ * Chaque étape traite les pièces une à une, dans l'ordre du lot : une pièce passe les étapes
+ * dans l'ordre, et ce qu'une étape crée pour une pièce (produit, client) est vu par la pièce
+ * suivante dans cette même étape. Une étape qui écarte une pièce (retour false) l'arrête là.
+ * Une exception fait abandonner le reste du lot et est relancée par run() ; une étape arrêtée
+ * (interruption, erreur fatale) est relevée de la même façon et transmet quand même la fin de lot.
+ *
+ * Non parallèle, chaque pièce passe toutes les étapes dans le thread appelant, comme avant.
+ */
+class PiecePipeline<T> {
+
+    /**
+     * Étape de la chaîne : false si la pièce est écartée (erreur déjà relevée par l'étape).
+     */
+    @FunctionalInterface
+    interface Stage<T> {
+        boolean process(T piece);
+    }
+
+    private record NamedStage<T>(String name, Stage<T> stage, AtomicLong busyMs) {
+    }
+
+    // Marque de fin de lot, transmise d'étape en étape
+    private static final Object END = new Object();
+
+    private final String name;
+    private final boolean parallel;
+    private final int queueSize;
+    private final BooleanSupplier stopWhen;
+    private final List<NamedStage<T>> stages = new ArrayList<>();
+
+    private final AtomicBoolean stopped = new AtomicBoolean();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    PiecePipeline(String name, boolean parallel, int queueSize, BooleanSupplier stopWhen) {
+        this.name = name;
+        this.parallel = parallel;
+        this.queueSize = Math.max(1, queueSize);
+        this.stopWhen = stopWhen;
+    }
+
+    PiecePipeline<T> stage(String stageName, Stage<T> stage) {
+        stages.add(new NamedStage<>(stageName, stage, new AtomicLong()));
+        return this;
+    }
+
+    /**
+     * Fait passer les pièces par toutes les étapes et attend la dernière.
+     *
+     * @return false si le lot a été interrompu (condition d'arrêt vérifiée en cours de route)
+     */
+    boolean run(List<T> pieces) {
+        if (parallel && stages.size() > 1) {
+            runParallel(pieces);
+        } else {
+            for (T piece : pieces) {
+                if (failure.get() != null || shouldStop()) {
+                    break;
+                }
+                for (NamedStage<T> stage : stages) {
+                    if (!process(stage, piece)) {
+                        break;
+                    }
+                }
+            }
+        }
+        RuntimeException error = failure.get();
+        if (error != null) {
+            throw error;
+        }
+        return !stopped.get();
+    }
+
+    private void runParallel(List<T> pieces) {
+        List<BlockingQueue<Object>> queues = new ArrayList<>();
+        for (int i = 0; i < stages.size(); i++) {
+            queues.add(new ArrayBlockingQueue<>(queueSize));
+        }
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < stages.size(); i++) {
+            NamedStage<T> stage = stages.get(i);
+            BlockingQueue<Object> in = queues.get(i);
+            BlockingQueue<Object> out = i + 1 < queues.size() ? queues.get(i + 1) : null;
+            workers.add(Thread.ofVirtual().name(name + "-" + stage.name()).start(() -> work(stage, in, out)));
+        }
+
+        try {
+            for (T piece : pieces) {
+                if (failure.get() != null || shouldStop()) {
+                    break;
+                }
+                queues.getFirst().put(piece);
+            }
+            forwardEnd(queues.getFirst());
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, new IllegalStateException("Traitement du lot " + name + " interrompu", e));
+            workers.forEach(Thread::interrupt);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void work(NamedStage<T> stage, BlockingQueue<Object> in, BlockingQueue<Object> out) {
+        boolean ended = false;
+        try {
+            while (true) {
+                Object item = in.take();
+                if (item == END) {
+                    break;
+                }
+                // Après une erreur ou un arrêt, les pièces encore en file sont abandonnées
+                if (failure.get() != null || shouldStop()) {
+                    continue;
+                }
+                if (process(stage, (T) item) && out != null) {
+                    out.put(item);
+                }
+            }
+            ended = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, new IllegalStateException("Étape " + stage.name() + " du lot " + name + " interrompue", e));
+        } catch (Error e) {
+            failure.compareAndSet(null, new IllegalStateException("Étape " + stage.name() + " du lot " + name + " arrêtée", e));
+            throw e;
+        } finally {
+            if (!ended) {
+                // Étape arrêtée avant la fin : l'étape précédente ne doit pas rester bloquée sur cette file
+                in.clear();
+            }
+            forwardEnd(out);
+        }
+    }
+
+    /**
+     * Transmet la fin de lot à l'étape suivante, dans tous les cas : sans elle, l'étape suivante
+     * attendrait indéfiniment. Lot abandonné, les pièces encore en file lui laissent la place.
+     */
+    private void forwardEnd(BlockingQueue<Object> out) {
+        if (out == null) {
+            return;
+        }
+        while (!out.offer(END)) {
+            if (failure.get() == null) {
+                try {
+                    out.put(END);
+                    return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure.compareAndSet(null, new IllegalStateException("Traitement du lot " + name + " interrompu", e));
+                }
+            } else {
+                out.poll();
+            }
+        }
+    }
+
+    private boolean process(NamedStage<T> stage, T piece) {
+        long start = System.currentTimeMillis();
+        try {
+            return stage.stage().process(piece);
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+            return false;
+        } finally {
+            stage.busyMs().addAndGet(System.currentTimeMillis() - start);
+        }
+    }
+
+    private boolean shouldStop() {
+        if (stopped.get()) {
+            return true;
+        }
+        if (stopWhen.getAsBoolean()) {
+            stopped.set(true);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Temps passé dans chaque étape (ms), dans l'ordre de la chaîne.
+     */
+    Map<String, Long> getBusyMs() {
+        Map<String, Long> busy = new LinkedHashMap<>();
+        stages.forEach(stage -> busy.put(stage.name(), stage.busyMs().get()));
+        return busy;
+    }
+}
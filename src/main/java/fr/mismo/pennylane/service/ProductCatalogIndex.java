@@ -0,0 +1,61 @@
+package fr.mismo.pennylane.service;
+
+import fr.mismo.pennylane.api.ProductApi;
+import fr.mismo.pennylane.dao.entity.SiteEntity;
+import fr.mismo.pennylane.dto.product.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Catalogue produits Pennylane de chaque site, indexé par id et par référence externe (n° produit Athénéo).
+ * Chargement et rafraîchissement : voir ReferentialDirectory.
+ */
+@Component
+public class ProductCatalogIndex extends ReferentialDirectory<Integer, String, Product> {
+
+    @Autowired
+    private ProductApi productApi;
+
+    public ProductCatalogIndex() {
+        super("products", "produits");
+    }
+
+    /**
+     * @return le produit de cette référence externe, ou null s'il n'existe pas
+     */
+    public Product findByExternalReference(SiteEntity site, String externalReference) {
+        return findByKey(site, externalReference);
+    }
+
+    @Override
+    protected List<Product> listAll(SiteEntity site) {
+        return productApi.listAllProducts(site);
+    }
+
+    @Override
+    protected Product retrieve(SiteEntity site, Integer id) {
+        return productApi.retrieveProduct(String.valueOf(id), site);
+    }
+
+    @Override
+    protected Integer idOf(Product product) {
+        return product.getId();
+    }
+
+    @Override
+    protected Integer changelogId(Long id) {
+        return id.intValue();
+    }
+
+    @Override
+    protected String keyOf(Product product) {
+        return product.getExternalReference();
+    }
+
+    @Override
+    protected Product search(SiteEntity site, String externalReference) {
+        return productApi.findProductByExternalReference(site, externalReference);
+    }
+}
@@ -0,0 +1,253 @@
+package fr.mismo.pennylane.service;
+
+import fr.mismo.pennylane.api.ChangelogApi;
+import fr.mismo.pennylane.dao.entity.SiteEntity;
+import fr.mismo.pennylane.dto.invoice.ChangelogResponse;
+import fr.mismo.pennylane.settings.ReferentialDirectoryProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Référentiel Pennylane gardé en mémoire par site (produits, fournisseurs, clients), indexé par id
+ * et, selon le référentiel, par une clé métier.
+ *
+ * - chargement complet (listAll) au premier besoin puis à chaque expiration de ttlMs ;
+ * - entre deux chargements, refresh() n'applique que le changelog du référentiel depuis le dernier
+ *   rafraîchissement : suppressions retirées, créations et modifications relues ;
+ * - les éléments créés ou modifiés par l'interface sont mis à jour sur place via put().
+ *
+ * Référentiel complet : une clé absente n'a pas d'élément. Si le chargement a échoué ou si un élément
+ * du changelog n'a pas pu être relu, les clés absentes sont recherchées dans Pennylane (search).
+ *
+ * @param <I> id Pennylane
+ * @param <K> clé métier (Void pour un référentiel lu seulement par id)
+ * @param <T> élément du référentiel
+ */
+@Slf4j
+public abstract class ReferentialDirectory<I, K, T> {
+
+    private static final String OPERATION_DELETE = "delete";
+
+    @Autowired
+    private ChangelogApi changelogApi;
+
+    @Autowired
+    private ReferentialDirectoryProperties properties;
+
+    private final String resource;
+    private final String label;
+    private final Map<Integer, SiteEntries> entriesBySite = new ConcurrentHashMap<>();
+    // Chargement complet d'un site hors des verrous de la table (pas d'épinglage du thread virtuel)
+    private final Map<Integer, ReentrantLock> loadLocks = new ConcurrentHashMap<>();
+
+    /**
+     * @param resource nom du référentiel dans Pennylane (changelog et paramétrage), ex. "products"
+     * @param label    nom du référentiel dans les logs, ex. "produits"
+     */
+    protected ReferentialDirectory(String resource, String label) {
+        this.resource = resource;
+        this.label = label;
+    }
+
+    /**
+     * @return tous les éléments du site, ou null si une page est illisible
+     */
+    protected abstract List<T> listAll(SiteEntity site);
+
+    /**
+     * @return l'élément de cet id, ou null s'il n'existe pas ou n'a pas pu être lu
+     */
+    protected abstract T retrieve(SiteEntity site, I id);
+
+    /**
+     * Relecture d'un élément signalé modifié par le changelog : à surcharger si retrieve peut rendre
+     * une lecture antérieure à la modification.
+     */
+    protected T reread(SiteEntity site, I id) {
+        return retrieve(site, id);
+    }
+
+    protected abstract I idOf(T item);
+
+    protected abstract I changelogId(Long id);
+
+    /**
+     * @return la clé métier de l'élément, ou null s'il n'en a pas
+     */
+    protected K keyOf(T item) {
+        return null;
+    }
+
+    /**
+     * Recherche dans Pennylane d'une clé absente d'un référentiel incomplet.
+     *
+     * @return l'élément de cette clé, ou null s'il n'existe pas
+     */
+    protected T search(SiteEntity site, K key) {
+        return null;
+    }
+
+    private final class SiteEntries {
+        private final Map<I, T> byId = new ConcurrentHashMap<>();
+        private final Map<K, T> byKey = new ConcurrentHashMap<>();
+        private final long loadedAtMs = System.currentTimeMillis();
+        private volatile OffsetDateTime refreshedAt = OffsetDateTime.now();
+        private volatile boolean complete;
+
+        SiteEntries(boolean complete) {
+            this.complete = complete;
+        }
+
+        void put(T item) {
+            I id = item != null ? idOf(item) : null;
+            if (id == null) {
+                return;
+            }
+            T previous = byId.put(id, item);
+            K previousKey = previous != null ? keyOf(previous) : null;
+            K key = keyOf(item);
+            if (previousKey != null && !previousKey.equals(key)) {
+                byKey.remove(previousKey, previous);
+            }
+            if (key != null) {
+                byKey.put(key, item);
+            }
+        }
+
+        void remove(I id) {
+            T previous = byId.remove(id);
+            K previousKey = previous != null ? keyOf(previous) : null;
+            if (previousKey != null) {
+                byKey.remove(previousKey, previous);
+            }
+        }
+    }
+
+    /**
+     * À appeler en début de passage : chargement complet si absent ou expiré, sinon application du changelog.
+     */
+    public void refresh(SiteEntity site) {
+        ReferentialDirectoryProperties.DirectorySpec spec = properties.spec(resource);
+        SiteEntries entries = entriesBySite.get(site.getId());
+        if (entries == null || System.currentTimeMillis() - entries.loadedAtMs >= spec.getTtlMs()) {
+            reload(site, entries);
+            return;
+        }
+
+        OffsetDateTime startedAt = OffsetDateTime.now();
+        // Recouvrement : une modification horodatée juste avant le dernier rafraîchissement n'est pas perdue
+        OffsetDateTime since = entries.refreshedAt.minusNanos(spec.getChangelogOverlapMs() * 1_000_000);
+        List<ChangelogResponse.ChangelogItem> changes = changelogApi.listAllChangelogs(site, resource, since);
+        if (changes == null) {
+            log.warn("Changelog {} indisponible pour le site {}, rechargement complet", label, site.getCode());
+            reload(site, entries);
+            return;
+        }
+
+        changes.stream()
+                .filter(change -> change.getId() != null)
+                .map(change -> Map.entry(changelogId(change.getId()), OPERATION_DELETE.equals(change.getOperation())))
+                .distinct()
+                .forEach(change -> {
+                    if (change.getValue()) {
+                        entries.remove(change.getKey());
+                    } else {
+                        T item = reread(site, change.getKey());
+                        if (item != null) {
+                            entries.put(item);
+                        } else {
+                            // Relecture impossible : retiré, et recherche dans Pennylane pour les clés absentes
+                            entries.remove(change.getKey());
+                            entries.complete = false;
+                        }
+                    }
+                });
+        entries.refreshedAt = startedAt;
+        log.debug("Référentiel {} du site {} rafraîchi : {} changement(s)", label, site.getCode(), changes.size());
+    }
+
+    /**
+     * @return l'élément de cet id ; absent du référentiel, il est lu puis ajouté (null s'il n'existe pas)
+     */
+    public T findById(SiteEntity site, I id) {
+        if (id == null) {
+            return null;
+        }
+        SiteEntries entries = entries(site);
+        T item = entries.byId.get(id);
+        if (item == null) {
+            item = retrieve(site, id);
+            entries.put(item);
+        }
+        return item;
+    }
+
+    /**
+     * Élément créé ou modifié par l'interface (réponse de l'appel de création / mise à jour).
+     */
+    public void put(SiteEntity site, T item) {
+        entries(site).put(item);
+    }
+
+    /**
+     * @return l'élément de cette clé métier, ou null s'il n'existe pas
+     */
+    protected T findByKey(SiteEntity site, K key) {
+        if (key == null) {
+            return null;
+        }
+        SiteEntries entries = entries(site);
+        T item = entries.byKey.get(key);
+        if (item == null && !entries.complete) {
+            item = search(site, key);
+            entries.put(item);
+        }
+        return item;
+    }
+
+    private SiteEntries entries(SiteEntity site) {
+        SiteEntries entries = entriesBySite.get(site.getId());
+        return entries != null ? entries : reload(site, null);
+    }
+
+    /**
+     * Recharge le site, sauf si un autre appelant l'a fait pendant l'attente du verrou.
+     * Un chargement en échec ne concerne que son appelant : le suivant retente.
+     *
+     * @param stale entrées à remplacer (null si le site n'est pas encore chargé)
+     */
+    private SiteEntries reload(SiteEntity site, SiteEntries stale) {
+        ReentrantLock lock = loadLocks.computeIfAbsent(site.getId(), id -> new ReentrantLock());
+        lock.lock();
+        try {
+            SiteEntries current = entriesBySite.get(site.getId());
+            if (current != null && current != stale) {
+                return current;
+            }
+            SiteEntries loaded = load(site);
+            entriesBySite.put(site.getId(), loaded);
+            return loaded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private SiteEntries load(SiteEntity site) {
+        List<T> items = listAll(site);
+        if (items == null) {
+            // Référentiel partiel : les clés absentes seront recherchées une à une dans Pennylane
+            log.warn("Référentiel {} du site {} illisible, recherche à la demande", label, site.getCode());
+            return new SiteEntries(false);
+        }
+        SiteEntries entries = new SiteEntries(true);
+        items.forEach(entries::put);
+        log.debug("Référentiel {} du site {} chargé : {} élément(s)", label, site.getCode(), entries.byId.size());
+        return entries;
+    }
+}
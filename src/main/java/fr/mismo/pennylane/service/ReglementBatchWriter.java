@@ -0,0 +1,78 @@
+package fr.mismo.pennylane.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.mismo.pennylane.dao.repository.LogRepository;
+import fr.mismo.pennylane.dto.invoice.ReglementResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Écriture ensembliste des règlements de factures d'achat.
+ *
+ * Les transactions rapprochées d'une ou plusieurs factures partent en un seul appel de
+ * SP_PENNYLANE_SUPPLIER_INVOICE_CREER_REGLEMENT_LOT (purge des transactions obsolètes puis
+ * création des règlements, facture par facture), au lieu d'un appel de purge et d'un appel
+ * par transaction. Les lignes d'une même facture ne sont jamais réparties sur deux appels :
+ * la purge a besoin de la liste complète de ses transactions.
+ */
+@Component
+@Slf4j
+public class ReglementBatchWriter {
+
+    @Autowired
+    LogRepository logRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    // Lignes par appel (une facture plus longue part seule)
+    @Value("${sync.reglements.batchSize:500}")
+    private int batchSize = 500;
+
+    public record Ligne(String invoiceId, Long transactionId, Double montant, String dateReglement) {}
+
+    /**
+     * @return une ligne par opération (purge de chaque facture, puis chacun de ses règlements), dans l'ordre
+     */
+    public List<ReglementResult> write(List<Ligne> lignes) {
+        Map<String, List<Ligne>> byInvoice = new LinkedHashMap<>();
+        for (Ligne ligne : lignes) {
+            byInvoice.computeIfAbsent(ligne.invoiceId(), k -> new ArrayList<>()).add(ligne);
+        }
+
+        List<ReglementResult> results = new ArrayList<>();
+        List<Ligne> batch = new ArrayList<>();
+        for (List<Ligne> invoiceLignes : byInvoice.values()) {
+            if (!batch.isEmpty() && batch.size() + invoiceLignes.size() > batchSize) {
+                results.addAll(send(batch));
+                batch = new ArrayList<>();
+            }
+            batch.addAll(invoiceLignes);
+        }
+        if (!batch.isEmpty()) {
+            results.addAll(send(batch));
+        }
+        return results;
+    }
+
+    private List<ReglementResult> send(List<Ligne> batch) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(batch);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Sérialisation des règlements impossible", e);
+        }
+        long start = System.currentTimeMillis();
+        List<ReglementResult> results = logRepository.creerReglementsLot(json);
+        log.debug("{} règlement(s) écrit(s) en un appel ({} ms)", batch.size(), System.currentTimeMillis() - start);
+        return results;
+    }
+}
@@ -0,0 +1,137 @@
+package fr.mismo.pennylane.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Transactions courtes des traitements de synchronisation.
+ *
+ * Les traitements ne sont plus transactionnels de bout en bout : les appels Pennylane et WSDocument
+ * se font sans transaction ni connexion JDBC, et seules les écritures Athénéo finales passent ici,
+ * dans une transaction propre (REQUIRES_NEW) validée aussitôt. Le temps passé dans chaque
+ * transaction, donc de détention de la connexion, est mesuré par nom pour le dashboard.
+ */
+@Component
+@Slf4j
+public class ShortTransactions {
+
+    private final TransactionTemplate writeTemplate;
+    private final TransactionTemplate readTemplate;
+    private final ObjectProvider<DataSource> dataSource;
+
+    // Au-delà, la transaction est signalée : une connexion détenue aussi longtemps prive les autres traitements
+    @Value("${sync.transactions.warnHoldMs:5000}")
+    private long warnHoldMs = 5000;
+
+    private final Map<String, HoldStats> stats = new ConcurrentHashMap<>();
+
+    private static final class HoldStats {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalMs = new AtomicLong();
+        private final AtomicLong maxMs = new AtomicLong();
+        private final AtomicLong slow = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+    }
+
+    public ShortTransactions(PlatformTransactionManager transactionManager, ObjectProvider<DataSource> dataSource) {
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+        this.writeTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setReadOnly(true);
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Écritures validées ensemble dans une transaction propre, même appelées depuis une lecture en cours.
+     */
+    public <T> T write(String name, Supplier<T> work) {
+        return measure(name, () -> writeTemplate.execute(status -> work.get()));
+    }
+
+    public void write(String name, Runnable work) {
+        write(name, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Lecture qui doit garder la connexion ouverte (résultat lu en flux) ; rejoint la transaction en cours s'il y en a une.
+     */
+    public <T> T read(String name, Supplier<T> work) {
+        return measure(name, () -> readTemplate.execute(status -> work.get()));
+    }
+
+    private <T> T measure(String name, Supplier<T> transaction) {
+        HoldStats holdStats = stats.computeIfAbsent(name, k -> new HoldStats());
+        long start = System.currentTimeMillis();
+        try {
+            return transaction.get();
+        } catch (RuntimeException e) {
+            holdStats.failed.incrementAndGet();
+            throw e;
+        } finally {
+            long durationMs = System.currentTimeMillis() - start;
+            holdStats.count.incrementAndGet();
+            holdStats.totalMs.addAndGet(durationMs);
+            holdStats.maxMs.accumulateAndGet(durationMs, Math::max);
+            if (durationMs > warnHoldMs) {
+                holdStats.slow.incrementAndGet();
+                log.warn("Transaction {} : connexion détenue {} ms", name, durationMs);
+            }
+        }
+    }
+
+    /**
+     * Durées de détention par transaction, de la plus longue à la plus courte, pour le dashboard.
+     */
+    public List<Map<String, Object>> getStats() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        stats.forEach((name, holdStats) -> {
+            long count = holdStats.count.get();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("name", name);
+            row.put("count", count);
+            row.put("averageMs", count > 0 ? holdStats.totalMs.get() / count : 0);
+            row.put("maxMs", holdStats.maxMs.get());
+            row.put("slow", holdStats.slow.get());
+            row.put("failed", holdStats.failed.get());
+            rows.add(row);
+        });
+        rows.sort(Comparator.comparing((Map<String, Object> row) -> (Long) row.get("maxMs")).reversed());
+        return rows;
+    }
+
+    /**
+     * Occupation du pool de connexions JDBC (Hikari) : connexions utilisées, libres, threads en attente et maximum.
+     */
+    public Map<String, Integer> getPoolStats() {
+        Map<String, Integer> pool = new LinkedHashMap<>();
+        DataSource source = dataSource.getIfAvailable();
+        if (source instanceof HikariDataSource hikari && hikari.getHikariPoolMXBean() != null) {
+            HikariPoolMXBean mxBean = hikari.getHikariPoolMXBean();
+            pool.put("active", mxBean.getActiveConnections());
+            pool.put("idle", mxBean.getIdleConnections());
+            pool.put("pending", mxBean.getThreadsAwaitingConnection());
+            pool.put("max", hikari.getMaximumPoolSize());
+        }
+        return pool;
+    }
+}
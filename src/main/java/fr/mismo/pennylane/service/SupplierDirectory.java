@@ -0,0 +1,65 @@
+package fr.mismo.pennylane.service;
+
+import fr.mismo.pennylane.api.SupplierApi;
+import fr.mismo.pennylane.dao.entity.SiteEntity;
+import fr.mismo.pennylane.dto.accounting.Item;
+import fr.mismo.pennylane.dto.supplier.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Annuaire des fournisseurs Pennylane de chaque site, indexé par id.
+ * Chargement et rafraîchissement : voir ReferentialDirectory.
+ */
+@Component
+public class SupplierDirectory extends ReferentialDirectory<Long, Void, Supplier> {
+
+    @Autowired
+    private SupplierApi supplierApi;
+
+    @Autowired
+    private LedgerAccountIndex ledgerAccountIndex;
+
+    public SupplierDirectory() {
+        super("suppliers", "fournisseurs");
+    }
+
+    /**
+     * @return le numéro du compte comptable du fournisseur (plan comptable du site), ou null s'il n'en a pas
+     */
+    public String ledgerAccountNumber(SiteEntity site, Supplier supplier) {
+        if (supplier == null || supplier.getLedgerAccount() == null || supplier.getLedgerAccount().getId() == null) {
+            return null;
+        }
+        Item ledger = ledgerAccountIndex.findById(site, supplier.getLedgerAccount().getId());
+        return ledger != null ? ledger.getNumber() : null;
+    }
+
+    @Override
+    protected List<Supplier> listAll(SiteEntity site) {
+        return supplierApi.listAllSuppliers(site);
+    }
+
+    @Override
+    protected Supplier retrieve(SiteEntity site, Long id) {
+        return supplierApi.retrieveSupplier(String.valueOf(id), site);
+    }
+
+    @Override
+    protected Supplier reread(SiteEntity site, Long id) {
+        // retrieveSupplier rendrait la lecture mémorisée, antérieure à la modification
+        return supplierApi.rereadSupplier(String.valueOf(id), site);
+    }
+
+    @Override
+    protected Long idOf(Supplier supplier) {
+        return supplier.getId();
+    }
+
+    @Override
+    protected Long changelogId(Long id) {
+        return id;
+    }
+}
@@ -0,0 +1,240 @@
+package fr.mismo.pennylane.service;
+
+import fr.mismo.pennylane.dao.entity.SiteEntity;
+import fr.mismo.pennylane.util.SingleFlight;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Exécuteur des traitements planifiés sur threads virtuels.
+ *
+ * Les sites, puis les documents d'un site, sont traités en parallèle : la durée d'un cycle
+ * tend vers celle du site le plus lent. Chaque site a son propre couloir de documents
+ * (documentParallelism), partagé par tous les traitements qui tournent sur ce site : un site
+ * lent ou en erreur n'occupe que son couloir. Un plafond global (globalDocumentParallelism)
+ * borne l'ensemble pour ne pas épuiser le pool de connexions SQL Server ; le débit Pennylane
+ * de chaque site reste borné par le RateLimiter (un seau par jeton d'API).
+ */
+@Component
+@Slf4j
+public class SyncExecutor {
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("pennylane-sync-", 0).factory());
+
+    @Value("${sync.executor.siteParallelism:10}")
+    private int siteParallelism = 10;
+
+    @Value("${sync.executor.documentParallelism:4}")
+    private int documentParallelism = 4;
+
+    @Value("${sync.executor.globalDocumentParallelism:24}")
+    private int globalDocumentParallelism = 24;
+
+    // Au-delà, le site est signalé comme lent dans les logs
+    @Value("${sync.executor.siteWarnMs:600000}")
+    private long siteWarnMs = 600000;
+
+    // Couloir de documents de chaque site, partagé par les traitements
+    private final Map<Integer, Semaphore> siteLanes = new ConcurrentHashMap<>();
+    private volatile Semaphore globalLane;
+
+    // Site traité par le thread courant : forEachDocument prend alors le couloir de ce site
+    private static final ThreadLocal<SiteEntity> CURRENT_SITE = new ThreadLocal<>();
+
+    private final Map<String, SiteTiming> timings = new ConcurrentHashMap<>();
+
+    private static final class SiteTiming {
+        private final String job;
+        private final String site;
+        private final AtomicLong runs = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong totalMs = new AtomicLong();
+        private final AtomicLong maxMs = new AtomicLong();
+        private volatile long lastMs;
+        private volatile LocalDateTime lastRun;
+        private volatile String lastError;
+        private volatile boolean running;
+
+        SiteTiming(String job, String site) {
+            this.job = job;
+            this.site = site;
+        }
+    }
+
+    /**
+     * Traite chaque site sur son propre thread virtuel et attend la fin de tous les sites.
+     * La durée de chaque site est relevée sous le nom du traitement pour le dashboard.
+     * Le passage a ses propres lectures Pennylane mémorisées (SingleFlight), oubliées à sa fin.
+     */
+    public void forEachSite(String job, Collection<SiteEntity> sites, Consumer<SiteEntity> action) {
+        if (sites == null || sites.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        SingleFlight.runScoped(() ->
+                runAll(sites, new Semaphore(Math.max(1, siteParallelism)), site -> runSite(job, site, action)));
+
+        long durationMs = System.currentTimeMillis() - start;
+        SiteTiming slowest = sites.stream()
+                .map(site -> timings.get(key(job, site)))
+                .filter(timing -> timing != null)
+                .max(Comparator.comparingLong(timing -> timing.lastMs))
+                .orElse(null);
+        if (slowest != null) {
+            log.debug("{} : {} site(s) en {} ms, site le plus lent {} ({} ms)",
+                    job, sites.size(), durationMs, slowest.site, slowest.lastMs);
+        }
+    }
+
+    /**
+     * Traite les documents en parallèle et attend la fin de tous les documents.
+     * Appelé depuis forEachSite, prend le couloir du site courant ; sinon un couloir propre à l'appel.
+     */
+    public <T> void forEachDocument(Collection<T> documents, Consumer<T> action) {
+        SiteEntity site = CURRENT_SITE.get();
+        Semaphore lane = site != null
+                ? siteLanes.computeIfAbsent(site.getId(), id -> new Semaphore(Math.max(1, documentParallelism)))
+                : new Semaphore(Math.max(1, documentParallelism));
+        Semaphore global = globalLane();
+
+        // Toujours dans le même ordre (site puis global) : pas d'interblocage entre sites
+        runAll(documents, lane, document -> {
+            global.acquireUninterruptibly();
+            try {
+                action.accept(document);
+            } finally {
+                global.release();
+            }
+        });
+    }
+
+    private void runSite(String job, SiteEntity site, Consumer<SiteEntity> action) {
+        SiteTiming timing = timings.computeIfAbsent(key(job, site), k -> new SiteTiming(job, site.getCode()));
+        timing.running = true;
+        timing.lastRun = LocalDateTime.now();
+        CURRENT_SITE.set(site);
+        long start = System.currentTimeMillis();
+        try {
+            action.accept(site);
+            timing.lastError = null;
+        } catch (RuntimeException e) {
+            // Isolé : l'erreur d'un site est relevée, les autres sites continuent
+            timing.failures.incrementAndGet();
+            timing.lastError = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            log.error("{} : erreur non gérée sur le site {}", job, site.getCode(), e);
+        } finally {
+            CURRENT_SITE.remove();
+            long durationMs = System.currentTimeMillis() - start;
+            timing.runs.incrementAndGet();
+            timing.totalMs.addAndGet(durationMs);
+            timing.maxMs.accumulateAndGet(durationMs, Math::max);
+            timing.lastMs = durationMs;
+            timing.running = false;
+            if (durationMs > siteWarnMs) {
+                log.warn("{} : site {} traité en {} ms", job, site.getCode(), durationMs);
+            }
+        }
+    }
+
+    private <T> void runAll(Collection<T> items, Semaphore lane, Consumer<T> action) {
+        if (items == null || items.isEmpty()) {
+            return;
+        }
+
+        List<Future<?>> futures = new ArrayList<>(items.size());
+
+        for (T item : items) {
+            futures.add(executor.submit(() -> {
+                lane.acquireUninterruptibly();
+                try {
+                    action.accept(item);
+                } catch (Exception e) {
+                    // Une erreur sur un élément ne doit jamais interrompre les autres
+                    log.error("Erreur non gérée lors d'un traitement parallèle", e);
+                } finally {
+                    lane.release();
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Attente des traitements parallèles interrompue");
+                futures.forEach(f -> f.cancel(true));
+                return;
+            } catch (ExecutionException e) {
+                log.error("Erreur lors d'un traitement parallèle", e.getCause());
+            }
+        }
+    }
+
+    // Créé à la première utilisation : la valeur injectée n'est connue qu'après construction
+    private Semaphore globalLane() {
+        Semaphore lane = globalLane;
+        if (lane == null) {
+            synchronized (this) {
+                if (globalLane == null) {
+                    globalLane = new Semaphore(Math.max(1, globalDocumentParallelism));
+                }
+                lane = globalLane;
+            }
+        }
+        return lane;
+    }
+
+    private static String key(String job, SiteEntity site) {
+        return job + "|" + site.getId();
+    }
+
+    /**
+     * Durées par traitement et par site, du plus lent au plus rapide au sein de chaque traitement, pour le dashboard.
+     */
+    public List<Map<String, Object>> getSiteStats() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        timings.values().forEach(timing -> {
+            long runs = timing.runs.get();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("job", timing.job);
+            row.put("site", timing.site);
+            row.put("running", timing.running);
+            row.put("lastRun", timing.lastRun);
+            row.put("lastMs", timing.lastMs);
+            row.put("averageMs", runs > 0 ? timing.totalMs.get() / runs : 0);
+            row.put("maxMs", timing.maxMs.get());
+            row.put("runs", runs);
+            row.put("failures", timing.failures.get());
+            row.put("lastError", timing.lastError);
+            rows.add(row);
+        });
+        rows.sort(Comparator.comparing((Map<String, Object> row) -> (String) row.get("job"))
+                .thenComparing(row -> (Long) row.get("lastMs"), Comparator.reverseOrder()));
+        return rows;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
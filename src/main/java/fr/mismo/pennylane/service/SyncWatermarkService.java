@@ -0,0 +1,121 @@
+package fr.mismo.pennylane.service;
+
+import fr.mismo.pennylane.dao.entity.SiteEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Points de reprise des synchronisations incrémentales, par site et par traitement
+ * (table PENNYLANE_SYNC_WATERMARK, dates en UTC).
+ *
+ * Le point de reprise est la date de début du dernier passage réussi : le passage suivant ne
+ * relit que ce qui a changé depuis, moins une marge de recouvrement fixée par l'appelant.
+ * Une demande de resynchronisation complète (FORCER_COMPLETE) est consommée par le passage
+ * suivant, qui repart sur la période complète.
+ */
+@Component
+@Slf4j
+public class SyncWatermarkService {
+
+    // Traitements à point de reprise
+    public static final String SYNC_PURCHASES = "SyncPurchases";
+
+    public static final String MODE_COMPLETE = "COMPLETE";
+    public static final String MODE_INCREMENTALE = "INCREMENTALE";
+
+    private static final String SELECT_WATERMARK = "SELECT DERNIERE_SYNCHRO FROM PENNYLANE_SYNC_WATERMARK "
+            + "WHERE NO_T_SITE = ? AND TRAITEMENT = ? AND FORCER_COMPLETE = 0";
+
+    private static final String MERGE_WATERMARK = "MERGE PENNYLANE_SYNC_WATERMARK AS cible "
+            + "USING (SELECT ? AS NO_T_SITE, ? AS TRAITEMENT) AS source "
+            + "ON cible.NO_T_SITE = source.NO_T_SITE AND cible.TRAITEMENT = source.TRAITEMENT "
+            + "WHEN MATCHED THEN UPDATE SET DERNIERE_SYNCHRO = ?, MODE = ?, NB_FACTURES = ?, FORCER_COMPLETE = 0, DATE_MAJ = GETDATE() "
+            + "WHEN NOT MATCHED THEN INSERT (NO_T_SITE, TRAITEMENT, DERNIERE_SYNCHRO, MODE, NB_FACTURES, FORCER_COMPLETE, DATE_MAJ) "
+            + "VALUES (source.NO_T_SITE, source.TRAITEMENT, ?, ?, ?, 0, GETDATE());";
+
+    private static final String FORCER_COMPLETE = "UPDATE PENNYLANE_SYNC_WATERMARK SET FORCER_COMPLETE = 1, DATE_MAJ = GETDATE() "
+            + "WHERE TRAITEMENT = ?";
+
+    private static final String SELECT_ALL = "SELECT w.NO_T_SITE, s.CODE, w.TRAITEMENT, w.DERNIERE_SYNCHRO, w.MODE, w.NB_FACTURES, "
+            + "w.FORCER_COMPLETE, w.DATE_MAJ FROM PENNYLANE_SYNC_WATERMARK w "
+            + "LEFT JOIN T_SITE s ON s.NO_T_SITE = w.NO_T_SITE ORDER BY w.TRAITEMENT, s.CODE";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return le point de reprise du traitement pour ce site, ou null (premier passage,
+     *         resynchronisation complète demandée ou table indisponible)
+     */
+    public OffsetDateTime lire(SiteEntity site, String traitement) {
+        try {
+            List<Timestamp> rows = jdbcTemplate.queryForList(SELECT_WATERMARK, Timestamp.class, site.getId(), traitement);
+            if (rows.isEmpty() || rows.getFirst() == null) {
+                return null;
+            }
+            return rows.getFirst().toLocalDateTime().atOffset(ZoneOffset.UTC);
+        } catch (Exception e) {
+            log.warn("Point de reprise {} du site {} illisible, synchronisation complète : {}", traitement, site.getCode(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Enregistre le début du passage réussi comme nouveau point de reprise et efface une éventuelle demande de resynchronisation complète.
+     */
+    public void enregistrer(SiteEntity site, String traitement, OffsetDateTime debutPassage, String mode, int nbFactures) {
+        Timestamp date = Timestamp.valueOf(debutPassage.withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime());
+        try {
+            jdbcTemplate.update(MERGE_WATERMARK, site.getId(), traitement, date, mode, nbFactures, date, mode, nbFactures);
+            log.debug("Point de reprise {} du site {} : {} ({}, {} facture(s))", traitement, site.getCode(), debutPassage, mode, nbFactures);
+        } catch (Exception e) {
+            // Non bloquant : le passage suivant repartira de l'ancien point de reprise
+            log.error("Point de reprise {} du site {} non enregistré : {}", traitement, site.getCode(), e.getMessage());
+        }
+    }
+
+    /**
+     * Demande une resynchronisation complète au prochain passage, pour un site ou pour tous (siteId null).
+     *
+     * @return le nombre de points de reprise concernés
+     */
+    public int demanderSynchroComplete(String traitement, Integer siteId) {
+        int count = siteId == null
+                ? jdbcTemplate.update(FORCER_COMPLETE, traitement)
+                : jdbcTemplate.update(FORCER_COMPLETE + " AND NO_T_SITE = ?", traitement, siteId);
+        log.info("Resynchronisation complète {} demandée ({} site(s))", traitement, count);
+        return count;
+    }
+
+    /**
+     * Points de reprise de tous les sites, pour le dashboard.
+     */
+    public List<Map<String, Object>> getWatermarks() {
+        try {
+            return jdbcTemplate.query(SELECT_ALL, (rs, rowNum) -> {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("siteId", rs.getInt("NO_T_SITE"));
+                row.put("site", rs.getString("CODE"));
+                row.put("traitement", rs.getString("TRAITEMENT"));
+                Timestamp derniere = rs.getTimestamp("DERNIERE_SYNCHRO");
+                row.put("derniereSynchro", derniere != null ? derniere.toLocalDateTime() : null);
+                row.put("mode", rs.getString("MODE"));
+                row.put("nbFactures", rs.getObject("NB_FACTURES"));
+                row.put("forcerComplete", rs.getBoolean("FORCER_COMPLETE"));
+                return row;
+            });
+        } catch (Exception e) {
+            log.warn("Points de reprise illisibles : {}", e.getMessage());
+            return List.of();
+        }
+    }
+}
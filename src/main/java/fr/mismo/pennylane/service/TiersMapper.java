@@ -1,6 +1,5 @@
 package fr.mismo.pennylane.service;
 
-import fr.mismo.pennylane.api.AccountsApi;
 import fr.mismo.pennylane.dao.entity.SiteEntity;
 import fr.mismo.pennylane.dao.repository.LogRepository;
 import fr.mismo.pennylane.dto.Address;
@@ -26,7 +25,7 @@ public class TiersMapper {
     private LogRepository logRepository;
 
     @Autowired
-    private AccountsApi accountsApi;
+    private LedgerAccountIndex ledgerAccountIndex;
 
     // Expression régulière pour valider les adresses email
     private static final Pattern EMAIL_PATTERN = Pattern.compile(
@@ -54,7 +53,10 @@ public class TiersMapper {
             mapCommonFields(tiers, customer, noFacture);
 
             // Gestion plan item
-            Item ledger = accountsApi.getLedgerAccountByNumber(sanitizeAccountNumber(targetNumber), site);
+            Item ledger = ledgerAccountIndex.findByNumber(site, sanitizeAccountNumber(targetNumber));
+            if (ledger == null || ledger.getId() == null) {
+                throw new IllegalStateException("Compte comptable " + compteComptable + " introuvable dans Pennylane");
+            }
 
             LedgerAccount ledgerAccount = new LedgerAccount();
             ledgerAccount.setId(Long.valueOf(ledger.getId()));
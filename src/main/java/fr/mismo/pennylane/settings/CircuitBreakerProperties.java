@@ -0,0 +1,17 @@
+package fr.mismo.pennylane.settings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Disjoncteurs par site et par famille d'appels (Pennylane, WSDocument).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "api.circuit-breaker")
+public class CircuitBreakerProperties {
+    private Boolean enabled = true;
+    private Integer failureThreshold = 5;
+    private Long openDurationMs = 60000L;
+}
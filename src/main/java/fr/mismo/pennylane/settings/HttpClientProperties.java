@@ -0,0 +1,33 @@
+package fr.mismo.pennylane.settings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Paramétrage du pool de connexions HTTP utilisé pour les appels Pennylane.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "api.http")
+public class HttpClientProperties {
+    private HttpPool pool = new HttpPool();
+    private HttpTimeouts timeouts = new HttpTimeouts();
+
+    @Data
+    public static class HttpPool {
+        private Integer maxTotal = 50;
+        private Integer maxPerRoute = 20;
+        private Long keepAlive = 30000L;
+        private Long idleEviction = 60000L;
+        private Long validateAfterInactivity = 2000L;
+    }
+
+    @Data
+    public static class HttpTimeouts {
+        private Long connectTimeout = 5000L;
+        private Long connectionRequestTimeout = 10000L;
+        private Long socketTimeout = 60000L;
+        private Long responseTimeout = 60000L;
+    }
+}
@@ -0,0 +1,15 @@
+package fr.mismo.pennylane.settings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Renseignement de la classe et de la méthode appelantes dans la table LOG (LogHelper).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "log.caller")
+public class LogCallerProperties {
+    private Boolean enrichInfo = true;
+}
@@ -0,0 +1,34 @@
+package fr.mismo.pennylane.settings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Écriture asynchrone par lots de la table LOG (LogHelper).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "log.writer")
+public class LogWriterProperties {
+
+    /**
+     * Comportement quand la file d'attente est pleine.
+     */
+    public enum OverflowPolicy {
+        /** Le thread métier attend une place au plus offerTimeoutMs, puis la ligne est abandonnée */
+        ATTENDRE,
+        /** La ligne est abandonnée immédiatement */
+        ABANDONNER,
+        /** Le thread métier écrit lui-même la ligne (comportement historique) */
+        SYNCHRONE
+    }
+
+    private Boolean enabled = true;
+    private Integer queueCapacity = 10000;
+    private Integer batchSize = 200;
+    private Long flushIntervalMs = 1000L;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.ATTENDRE;
+    private Long offerTimeoutMs = 100L;
+    private Long shutdownTimeoutMs = 10000L;
+}
@@ -0,0 +1,18 @@
+package fr.mismo.pennylane.settings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Budget d'appels Pennylane par jeton d'API (token bucket).
+ * Valeurs initiales, corrigées ensuite par les en-têtes ratelimit-* renvoyés par Pennylane.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "api.rate-limit")
+public class RateLimitProperties {
+    private Integer capacity = 25;
+    private Long windowMs = 5000L;
+    private Long maxWaitMs = 5000L;
+}
@@ -0,0 +1,31 @@
+package fr.mismo.pennylane.settings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Paramétrage des caches de référentiels Pennylane (@Cacheable), par nom de cache.
+ * Un cache absent de la liste prend les valeurs par défaut.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "api.cache")
+public class ReferentialCacheProperties {
+    private CacheSpec defaults = new CacheSpec();
+    private Map<String, CacheSpec> caches = new HashMap<>();
+
+    @Data
+    public static class CacheSpec {
+        private Long ttlMs = 3600000L;
+        private Long refreshAfterMs = 900000L;
+        private Long maxSize = 500L;
+    }
+
+    public CacheSpec spec(String name) {
+        return caches.getOrDefault(name, defaults);
+    }
+}
@@ -0,0 +1,30 @@
+package fr.mismo.pennylane.settings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Référentiels Pennylane gardés en mémoire par site (ReferentialDirectory), par nom de référentiel
+ * (products, suppliers, customers). Un référentiel absent de la liste prend les valeurs par défaut.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "api.directory")
+public class ReferentialDirectoryProperties {
+    private DirectorySpec defaults = new DirectorySpec();
+    private Map<String, DirectorySpec> directories = new HashMap<>();
+
+    @Data
+    public static class DirectorySpec {
+        private Long ttlMs = 3600000L;
+        private Long changelogOverlapMs = 60000L;
+    }
+
+    public DirectorySpec spec(String name) {
+        return directories.getOrDefault(name, defaults);
+    }
+}
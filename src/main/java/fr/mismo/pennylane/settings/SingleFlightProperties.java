@@ -0,0 +1,16 @@
+package fr.mismo.pennylane.settings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mutualisation des lectures Pennylane identiques (même jeton, même URL).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "api.single-flight")
+public class SingleFlightProperties {
+    private Long memoTtlMs = 60000L;
+    private Integer memoMaxEntries = 5000;
+}
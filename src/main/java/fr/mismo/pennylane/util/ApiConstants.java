@@ -26,6 +26,7 @@ public final class ApiConstants {
         public static final int MAX_RETRY_ATTEMPTS = 3;
         public static final long INITIAL_BACKOFF_MS = 500;
         public static final double BACKOFF_MULTIPLIER = 2.0;
+        public static final long MAX_BACKOFF_MS = 30000;
     }
 
     /**
@@ -0,0 +1,212 @@
+package fr.mismo.pennylane.util;
+
+import fr.mismo.pennylane.dao.entity.SiteEntity;
+import fr.mismo.pennylane.settings.CircuitBreakerProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Disjoncteurs par site (jeton d'API) et par famille d'appels.
+ *
+ * FERMÉ : les appels passent, les échecs consécutifs (erreur réseau, 5xx) sont comptés.
+ * OUVERT : au-delà du seuil, les appels sont refusés sans être émis pendant openDurationMs.
+ * SEMI-OUVERT : à l'échéance, un seul appel de sonde passe ; son succès referme le disjoncteur,
+ * son échec le rouvre pour une nouvelle période.
+ */
+@Component
+@Slf4j
+public class CircuitBreakerRegistry {
+
+    public enum State { FERME, OUVERT, SEMI_OUVERT }
+
+    private final CircuitBreakerProperties properties;
+
+    private final ConcurrentHashMap<BreakerKey, Breaker> breakers = new ConcurrentHashMap<>();
+
+    // Jeton d'API -> code site, pour l'affichage sur le dashboard
+    private final ConcurrentHashMap<String, String> siteCodes = new ConcurrentHashMap<>();
+
+    public CircuitBreakerRegistry(CircuitBreakerProperties properties) {
+        this.properties = properties;
+    }
+
+    private record BreakerKey(String siteKey, EndpointFamily family) {}
+
+    private final class Breaker {
+        private State state = State.FERME;
+        private int consecutiveFailures;
+        private long openedAtMs;
+        private long openUntilMs;
+        private boolean probeInFlight;
+
+        synchronized boolean allowRequest() {
+            long now = System.currentTimeMillis();
+            if (state == State.OUVERT && now >= openUntilMs) {
+                state = State.SEMI_OUVERT;
+                probeInFlight = false;
+            }
+            return switch (state) {
+                case FERME -> true;
+                case OUVERT -> false;
+                case SEMI_OUVERT -> {
+                    if (probeInFlight) {
+                        yield false;
+                    }
+                    probeInFlight = true;
+                    yield true;
+                }
+            };
+        }
+
+        synchronized boolean isRejecting() {
+            return state == State.OUVERT && System.currentTimeMillis() < openUntilMs;
+        }
+
+        synchronized State onSuccess() {
+            State previous = state;
+            state = State.FERME;
+            consecutiveFailures = 0;
+            probeInFlight = false;
+            return previous;
+        }
+
+        synchronized State onFailure() {
+            State previous = state;
+            consecutiveFailures++;
+            if (state == State.SEMI_OUVERT || consecutiveFailures >= properties.getFailureThreshold()) {
+                long now = System.currentTimeMillis();
+                state = State.OUVERT;
+                openedAtMs = now;
+                openUntilMs = now + properties.getOpenDurationMs();
+                probeInFlight = false;
+            }
+            return previous;
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("state", state.name());
+            stats.put("failures", consecutiveFailures);
+            stats.put("openedAt", openedAtMs > 0 ? Instant.ofEpochMilli(openedAtMs).toString() : "");
+            stats.put("retryAt", state == State.OUVERT ? Instant.ofEpochMilli(openUntilMs).toString() : "");
+            return stats;
+        }
+    }
+
+    /**
+     * Un appel de cette famille peut-il être émis ? Consomme l'unique sonde en état semi-ouvert :
+     * l'appelant doit ensuite signaler le résultat via recordSuccess / recordFailure.
+     */
+    public boolean allowRequest(String siteKey, EndpointFamily family) {
+        return !Boolean.TRUE.equals(properties.getEnabled()) || breaker(siteKey, family).allowRequest();
+    }
+
+    public void recordSuccess(String siteKey, EndpointFamily family) {
+        if (!Boolean.TRUE.equals(properties.getEnabled())) {
+            return;
+        }
+        State previous = breaker(siteKey, family).onSuccess();
+        if (previous != State.FERME) {
+            log.info("Disjoncteur {} / {} refermé", label(siteKey), family);
+        }
+    }
+
+    public void recordFailure(String siteKey, EndpointFamily family) {
+        if (!Boolean.TRUE.equals(properties.getEnabled())) {
+            return;
+        }
+        Breaker breaker = breaker(siteKey, family);
+        State previous = breaker.onFailure();
+        if (previous != State.OUVERT && breaker.isRejecting()) {
+            log.warn("Disjoncteur {} / {} ouvert pour {} ms", label(siteKey), family, properties.getOpenDurationMs());
+        }
+    }
+
+    /**
+     * Vrai si l'une des familles est ouverte pour ce site et pas encore à l'échéance de sonde.
+     * Ne consomme pas la sonde : sert aux traitements à décider s'il est utile de démarrer un lot.
+     */
+    public boolean isOpen(SiteEntity site, EndpointFamily... families) {
+        if (!Boolean.TRUE.equals(properties.getEnabled())) {
+            return false;
+        }
+        String siteKey = siteKey(site);
+        for (EndpointFamily family : families) {
+            Breaker breaker = breakers.get(new BreakerKey(siteKey, family));
+            if (breaker != null && breaker.isRejecting()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Exécute un appel hors RestTemplate (WSDocument...) sous la protection du disjoncteur.
+     *
+     * @throws CircuitOpenException si le disjoncteur refuse l'appel
+     */
+    public <T> T execute(SiteEntity site, EndpointFamily family, Supplier<T> call) {
+        String siteKey = siteKey(site);
+        if (!allowRequest(siteKey, family)) {
+            throw new CircuitOpenException("Disjoncteur " + family + " ouvert pour le site " + site.getCode());
+        }
+        try {
+            T result = call.get();
+            recordSuccess(siteKey, family);
+            return result;
+        } catch (RuntimeException e) {
+            recordFailure(siteKey, family);
+            throw e;
+        }
+    }
+
+    /**
+     * Clé du site : son jeton d'API, celui que les intercepteurs HTTP retrouvent dans l'en-tête Authorization.
+     */
+    public String siteKey(SiteEntity site) {
+        String key = site.getPennylaneToken() != null ? site.getPennylaneToken() : String.valueOf(site.getCode());
+        if (site.getCode() != null) {
+            siteCodes.putIfAbsent(key, site.getCode().trim());
+        }
+        return key;
+    }
+
+    /**
+     * État de tous les disjoncteurs sollicités depuis le démarrage, pour le dashboard.
+     */
+    public List<Map<String, Object>> getStates() {
+        List<Map<String, Object>> states = new ArrayList<>();
+        breakers.forEach((key, breaker) -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("site", label(key.siteKey()));
+            stats.put("family", key.family().getLibelle());
+            stats.putAll(breaker.snapshot());
+            states.add(stats);
+        });
+        states.sort(Comparator.comparing((Map<String, Object> s) -> String.valueOf(s.get("site")))
+                .thenComparing(s -> String.valueOf(s.get("family"))));
+        return states;
+    }
+
+    private Breaker breaker(String siteKey, EndpointFamily family) {
+        return breakers.computeIfAbsent(new BreakerKey(siteKey, family), k -> new Breaker());
+    }
+
+    // Jamais le jeton en clair dans les logs ni sur le dashboard
+    private String label(String siteKey) {
+        String code = siteCodes.get(siteKey);
+        if (code != null) {
+            return code;
+        }
+        return siteKey.length() > 4 ? "…" + siteKey.substring(siteKey.length() - 4) : siteKey;
+    }
+}
@@ -0,0 +1,11 @@
+package fr.mismo.pennylane.util;
+
+/**
+ * Appel refusé sans être émis : le disjoncteur de la famille est ouvert pour ce site.
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
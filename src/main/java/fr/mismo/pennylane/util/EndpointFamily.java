@@ -0,0 +1,44 @@
+package fr.mismo.pennylane.util;
+
+import java.net.URI;
+
+/**
+ * Familles d'appels distantes, chacune protégée par son propre disjoncteur par site.
+ */
+public enum EndpointFamily {
+    INVOICES("Factures"),
+    LEDGER_ACCOUNTS("Comptes / catégories"),
+    CUSTOMERS("Clients / fournisseurs"),
+    PRODUCTS("Produits"),
+    DOCUMENTS("Documents");
+
+    private final String libelle;
+
+    EndpointFamily(String libelle) {
+        this.libelle = libelle;
+    }
+
+    public String getLibelle() {
+        return libelle;
+    }
+
+    /**
+     * Famille d'un appel Pennylane d'après le chemin de l'URL.
+     */
+    public static EndpointFamily of(URI uri) {
+        String path = uri.getPath() != null ? uri.getPath() : "";
+        if (path.contains("ledger_accounts") || path.contains("categories")) {
+            return LEDGER_ACCOUNTS;
+        }
+        if (path.contains("customers") || path.contains("suppliers")) {
+            return CUSTOMERS;
+        }
+        if (path.contains("products")) {
+            return PRODUCTS;
+        }
+        if (path.contains("file_attachments")) {
+            return DOCUMENTS;
+        }
+        return INVOICES;
+    }
+}
@@ -1,63 +1,171 @@
 package fr.mismo.pennylane.util;
 
+import fr.mismo.pennylane.settings.RateLimitProperties;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
 
-import java.time.Duration;
-import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Rate limiter pour gérer les appels API externes avec gestion des quotas.
  * Implémentation thread-safe basée sur l'algorithme Token Bucket.
  *
- * Remplace les Thread.sleep() disséminés dans le code par une gestion centralisée.
+ * Seule autorité de cadencement des appels Pennylane : un seau par jeton d'API
+ * (SiteEntity.pennylaneToken), rechargé en continu et recalé sur les en-têtes
+ * ratelimit-* / Retry-After des réponses (voir RateLimitInterceptor).
  */
 @Component
 @Slf4j
 public class RateLimiter {
 
-    private static final int DEFAULT_MAX_CALLS_PER_MINUTE = 100;
-    private static final Duration WINDOW_DURATION = Duration.ofMinutes(1);
+    private static final int DEFAULT_MAX_CALLS_PER_MINUTE = ApiConstants.RateLimit.PENNYLANE_MAX_CALLS_PER_MINUTE;
+    private static final long MINUTE_MS = TimeUnit.MINUTES.toMillis(1);
 
-    // Stockage thread-safe des quotas par endpoint
+    private final RateLimitProperties properties;
+
+    // Stockage thread-safe des quotas par endpoint / jeton
     private final ConcurrentHashMap<String, EndpointQuota> quotas = new ConcurrentHashMap<>();
 
+    public RateLimiter(RateLimitProperties properties) {
+        this.properties = properties;
+    }
+
     /**
-     * Classe interne pour gérer les quotas par endpoint
+     * Seau de jetons : capacité maximale (rafale) et recharge continue proportionnelle au temps écoulé.
+     *
+     * Sans verrou : l'état est un instantané immuable remplacé par compare-and-set, aucun thread
+     * (virtuel ou non) n'est jamais bloqué ni épinglé sur son thread porteur ; l'attente éventuelle
+     * se fait hors du seau (Thread.sleep dans await).
      */
     private static class EndpointQuota {
-        private final int maxCallsPerMinute;
-        private final AtomicLong callCount = new AtomicLong(0);
-        private volatile Instant windowStart = Instant.now();
+        private final AtomicReference<BucketState> state;
 
-        EndpointQuota(int maxCallsPerMinute) {
-            this.maxCallsPerMinute = maxCallsPerMinute;
+        EndpointQuota(int capacity, long windowMs) {
+            this.state = new AtomicReference<>(new BucketState(
+                    capacity, (double) capacity / windowMs, capacity, System.nanoTime(), System.nanoTime()));
         }
 
-        synchronized boolean tryAcquire() {
-            Instant now = Instant.now();
+        boolean tryAcquire() {
+            while (true) {
+                BucketState current = state.get();
+                long now = System.nanoTime();
+                BucketState refilled = current.refill(now);
 
-            // Réinitialiser la fenêtre si elle est expirée
-            if (Duration.between(windowStart, now).compareTo(WINDOW_DURATION) > 0) {
-                windowStart = now;
-                callCount.set(0);
+                // Vérifier si on peut faire l'appel
+                if (now - refilled.blockedUntilNanos() < 0 || refilled.tokens() < 1) {
+                    return false;
+                }
+                if (state.compareAndSet(current, refilled.withTokens(refilled.tokens() - 1))) {
+                    return true;
+                }
             }
+        }
+
+        long getWaitTimeMillis() {
+            long now = System.nanoTime();
+            BucketState refilled = state.get().refill(now);
+
+            long blockedMs = TimeUnit.NANOSECONDS.toMillis(refilled.blockedUntilNanos() - now);
+            long refillMs = refilled.tokens() >= 1 ? 0 : (long) Math.ceil((1 - refilled.tokens()) / refilled.refillPerMs());
+            return Math.max(1, Math.max(blockedMs, refillMs));
+        }
+
+        /**
+         * Recale le seau sur le quota annoncé par le serveur.
+         */
+        void adapt(Integer limit, Integer remaining, Long resetMs) {
+            state.updateAndGet(current -> {
+                BucketState next = current.refill(System.nanoTime());
+                if (limit != null && limit > 0 && limit != next.capacity()) {
+                    // Même fenêtre, quota différent : on ajuste le débit dans la même proportion
+                    next = new BucketState(limit, next.refillPerMs() * limit / next.capacity(),
+                            Math.min(next.tokens(), limit), next.lastRefillNanos(), next.blockedUntilNanos());
+                }
+                if (remaining != null) {
+                    next = next.withTokens(Math.min(next.tokens(), remaining));
+                    if (remaining <= 0 && resetMs != null && resetMs > 0) {
+                        next = next.blockedFor(resetMs);
+                    }
+                }
+                return next;
+            });
+        }
+
+        void block(long delayMs) {
+            state.updateAndGet(current -> current.refill(System.nanoTime()).blockedFor(delayMs));
+        }
+
+        long remaining() {
+            return (long) Math.max(0, state.get().refill(System.nanoTime()).tokens());
+        }
+    }
+
+    private record BucketState(double capacity, double refillPerMs, double tokens,
+                               long lastRefillNanos, long blockedUntilNanos) {
 
-            // Vérifier si on peut faire l'appel
-            if (callCount.get() < maxCallsPerMinute) {
-                callCount.incrementAndGet();
-                return true;
+        BucketState refill(long now) {
+            double elapsedMs = (now - lastRefillNanos) / 1_000_000.0;
+            if (elapsedMs <= 0) {
+                return this;
             }
+            return new BucketState(capacity, refillPerMs, Math.min(capacity, tokens + elapsedMs * refillPerMs),
+                    now, blockedUntilNanos);
+        }
 
-            return false;
+        BucketState withTokens(double newTokens) {
+            return new BucketState(capacity, refillPerMs, newTokens, lastRefillNanos, blockedUntilNanos);
         }
 
-        long getWaitTimeMillis() {
-            Instant now = Instant.now();
-            Instant windowEnd = windowStart.plus(WINDOW_DURATION);
-            return Duration.between(now, windowEnd).toMillis();
+        BucketState blockedFor(long delayMs) {
+            long until = lastRefillNanos + TimeUnit.MILLISECONDS.toNanos(delayMs);
+            long blockedUntil = until - blockedUntilNanos > 0 ? until : blockedUntilNanos;
+            return new BucketState(capacity, refillPerMs, Math.min(tokens, 0), lastRefillNanos, blockedUntil);
+        }
+    }
+
+    /**
+     * Attendre un jeton pour un appel Pennylane effectué avec le jeton d'API donné.
+     *
+     * @param apiToken Jeton d'API du site (SiteEntity.pennylaneToken)
+     */
+    public void acquire(String apiToken) {
+        EndpointQuota quota = quotas.computeIfAbsent(
+            apiToken,
+            k -> new EndpointQuota(properties.getCapacity(), properties.getWindowMs())
+        );
+        await(quota, apiToken);
+    }
+
+    /**
+     * Met à jour le seau du jeton à partir des en-têtes de la réponse Pennylane.
+     *
+     * @param apiToken Jeton d'API du site
+     * @param headers En-têtes de la réponse
+     * @param statusCode Code HTTP de la réponse
+     */
+    public void updateFromResponse(String apiToken, HttpHeaders headers, int statusCode) {
+        EndpointQuota quota = quotas.get(apiToken);
+        if (quota == null) {
+            return;
+        }
+
+        Integer limit = parseInteger(firstHeader(headers, "ratelimit-limit", "x-ratelimit-limit"));
+        Integer remaining = parseInteger(firstHeader(headers, "ratelimit-remaining", "x-ratelimit-remaining"));
+        Long resetMs = parseResetMs(firstHeader(headers, "ratelimit-reset", "x-ratelimit-reset"));
+        quota.adapt(limit, remaining, resetMs);
+
+        if (statusCode == 429) {
+            Long retryAfterMs = parseRetryAfterMs(headers.getFirst(HttpHeaders.RETRY_AFTER));
+            long delay = retryAfterMs != null ? retryAfterMs
+                    : resetMs != null ? resetMs
+                    : ApiConstants.RateLimit.PENNYLANE_RETRY_DELAY_LONG_MS;
+            log.warn("Quota Pennylane dépassé (429) pour le jeton {}, pause de {}ms", mask(apiToken), delay);
+            quota.block(delay);
         }
     }
 
@@ -79,18 +187,21 @@ public class RateLimiter {
     public void waitIfNeeded(String endpointKey, int maxCallsPerMinute) {
         EndpointQuota quota = quotas.computeIfAbsent(
             endpointKey,
-            k -> new EndpointQuota(maxCallsPerMinute)
+            k -> new EndpointQuota(maxCallsPerMinute, MINUTE_MS)
         );
+        await(quota, endpointKey);
+    }
 
+    private void await(EndpointQuota quota, String key) {
         while (!quota.tryAcquire()) {
-            long waitTime = Math.min(quota.getWaitTimeMillis(), 5000); // Max 5 secondes
-            log.debug("Rate limit atteint pour {}, attente de {}ms", endpointKey, waitTime);
+            long waitTime = Math.min(quota.getWaitTimeMillis(), properties.getMaxWaitMs());
+            log.debug("Rate limit atteint pour {}, attente de {}ms", mask(key), waitTime);
 
             try {
                 Thread.sleep(waitTime);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
-                log.warn("Rate limiter interrompu pour {}", endpointKey);
+                log.warn("Rate limiter interrompu pour {}", mask(key));
                 break;
             }
         }
@@ -104,13 +215,70 @@ public class RateLimiter {
     }
 
     /**
-     * Obtenir le nombre d'appels restants pour un endpoint
+     * Obtenir le nombre d'appels restants pour un endpoint ou un jeton
      */
     public long getRemainingCalls(String endpointKey) {
         EndpointQuota quota = quotas.get(endpointKey);
         if (quota == null) {
-            return DEFAULT_MAX_CALLS_PER_MINUTE;
+            return properties.getCapacity();
         }
-        return Math.max(0, quota.maxCallsPerMinute - quota.callCount.get());
+        return quota.remaining();
+    }
+
+    private static String firstHeader(HttpHeaders headers, String... names) {
+        for (String name : names) {
+            String value = headers.getFirst(name);
+            if (value != null && !value.isBlank()) {
+                return value.trim();
+            }
+        }
+        return null;
+    }
+
+    private static Integer parseInteger(String value) {
+        if (value == null) return null;
+        try {
+            return (int) Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * ratelimit-reset : secondes restantes, ou timestamp epoch (secondes) selon les API.
+     */
+    private static Long parseResetMs(String value) {
+        if (value == null) return null;
+        try {
+            long reset = (long) Double.parseDouble(value);
+            if (reset > 1_000_000_000L) {
+                return Math.max(0, reset * 1000 - System.currentTimeMillis());
+            }
+            return reset * 1000;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Retry-After : nombre de secondes ou date HTTP (RFC 1123).
+     */
+    public static Long parseRetryAfterMs(String value) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            return Long.parseLong(value.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, date.toInstant().toEpochMilli() - System.currentTimeMillis());
+            } catch (Exception ignored) {
+                return null;
+            }
+        }
+    }
+
+    private static String mask(String key) {
+        if (key == null || key.length() <= 8) return key;
+        return key.substring(0, 4) + "…" + key.substring(key.length() - 4);
     }
 }
@@ -0,0 +1,130 @@
+package fr.mismo.pennylane.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Politique de rejeu des appels Pennylane : classification des erreurs, backoff exponentiel
+ * plafonné avec gigue, respect du Retry-After et compteurs exposés sur le dashboard.
+ *
+ * Un POST/PUT n'est rejoué que si la requête n'a pas pu être traitée côté serveur (429,
+ * connexion refusée) : un 5xx sur une création pourrait sinon produire un doublon.
+ */
+@Component
+@Slf4j
+public class RetryPolicy {
+
+    private static final Set<Integer> RETRYABLE_STATUS_ANY_METHOD = Set.of(429);
+    private static final Set<Integer> RETRYABLE_STATUS_IDEMPOTENT = Set.of(429, 500, 502, 503, 504);
+    private static final Set<HttpMethod> IDEMPOTENT_METHODS = Set.of(
+            HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.DELETE);
+
+    private final AtomicLong retriesThrottled = new AtomicLong();
+    private final AtomicLong retriesServer = new AtomicLong();
+    private final AtomicLong retriesIo = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    public int getMaxAttempts() {
+        return ApiConstants.RateLimit.MAX_RETRY_ATTEMPTS;
+    }
+
+    /**
+     * Un code HTTP justifie-t-il un nouvel essai pour cette méthode ?
+     */
+    public boolean isRetryable(HttpMethod method, int statusCode) {
+        return IDEMPOTENT_METHODS.contains(method)
+                ? RETRYABLE_STATUS_IDEMPOTENT.contains(statusCode)
+                : RETRYABLE_STATUS_ANY_METHOD.contains(statusCode);
+    }
+
+    /**
+     * Une erreur d'entrée/sortie justifie-t-elle un nouvel essai pour cette méthode ?
+     * Connexion impossible : la requête n'est jamais partie, rejouable quelle que soit la méthode.
+     */
+    public boolean isRetryable(HttpMethod method, Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof UnknownHostException) {
+                return true;
+            }
+            if ((cause instanceof IOException || cause instanceof TimeoutException)
+                    && IDEMPOTENT_METHODS.contains(method)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Délai avant l'essai n° attempt (à partir de 1) : Retry-After s'il est fourni, sinon
+     * INITIAL_BACKOFF_MS x BACKOFF_MULTIPLIER^(attempt-1) plafonné, avec gigue sur la moitié du délai.
+     */
+    public long backoffDelay(int attempt, Long retryAfterMs) {
+        if (retryAfterMs != null && retryAfterMs >= 0) {
+            return Math.min(retryAfterMs, ApiConstants.RateLimit.MAX_BACKOFF_MS);
+        }
+        double exponential = ApiConstants.RateLimit.INITIAL_BACKOFF_MS
+                * Math.pow(ApiConstants.RateLimit.BACKOFF_MULTIPLIER, Math.max(0, attempt - 1));
+        long capped = (long) Math.min(exponential, ApiConstants.RateLimit.MAX_BACKOFF_MS);
+        long half = capped / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    /**
+     * Attente entre deux essais.
+     *
+     * @return false si le thread a été interrompu
+     */
+    public boolean pause(long delayMs) {
+        try {
+            Thread.sleep(delayMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Attente avant nouvel essai interrompue");
+            return false;
+        }
+    }
+
+    public void recordRetry(Integer statusCode) {
+        if (statusCode == null) {
+            retriesIo.incrementAndGet();
+        } else if (statusCode == 429) {
+            retriesThrottled.incrementAndGet();
+        } else {
+            retriesServer.incrementAndGet();
+        }
+    }
+
+    public void recordOutcome(boolean success) {
+        if (success) {
+            recovered.incrementAndGet();
+        } else {
+            exhausted.incrementAndGet();
+        }
+    }
+
+    /**
+     * Compteurs depuis le démarrage de l'application.
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("retries429", retriesThrottled.get());
+        stats.put("retries5xx", retriesServer.get());
+        stats.put("retriesIo", retriesIo.get());
+        stats.put("recovered", recovered.get());
+        stats.put("exhausted", exhausted.get());
+        return stats;
+    }
+}
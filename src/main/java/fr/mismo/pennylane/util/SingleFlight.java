@@ -0,0 +1,131 @@
+package fr.mismo.pennylane.util;
+
+import fr.mismo.pennylane.settings.SingleFlightProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Mutualise les lectures Pennylane idempotentes (GET) par clé jeton + URL.
+ *
+ * - un seul appel HTTP en vol par clé : les appelants concurrents (autres documents, autres sites
+ *   partageant le jeton) attendent et reçoivent le même résultat ;
+ * - dans un passage (runScoped, ouvert par SyncExecutor.forEachSite), le résultat non null est
+ *   mémorisé : une nouvelle lecture de la même ressource pendant le traitement ne coûte rien. Chaque
+ *   passage a ses propres lectures mémorisées, abandonnées à sa fin sans toucher à celles des passages
+ *   simultanés ; memoTtlMs borne en plus leur durée dans un passage long. Hors passage, rien n'est
+ *   mémorisé.
+ *
+ * Réservé aux ressources que l'interface ne modifie pas (catégories, fournisseurs, comptes) :
+ * l'objet renvoyé est partagé entre appelants et ne doit pas être modifié.
+ */
+@Component
+@Slf4j
+public class SingleFlight {
+
+    private final SingleFlightProperties properties;
+
+    // Lectures mémorisées du passage en cours, transmises aux threads virtuels créés pendant le passage
+    private static final InheritableThreadLocal<Map<String, Memo>> RUN_MEMO = new InheritableThreadLocal<>();
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlight(SingleFlightProperties properties) {
+        this.properties = properties;
+    }
+
+    private record Memo(Object value, long expiresAtMs) {
+        boolean isExpired(long now) {
+            return now >= expiresAtMs;
+        }
+    }
+
+    /**
+     * Exécute un passage avec ses propres lectures mémorisées, oubliées à la fin du passage.
+     */
+    public static void runScoped(Runnable run) {
+        Map<String, Memo> previous = RUN_MEMO.get();
+        RUN_MEMO.set(new ConcurrentHashMap<>());
+        try {
+            run.run();
+        } finally {
+            if (previous != null) {
+                RUN_MEMO.set(previous);
+            } else {
+                RUN_MEMO.remove();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String token, String url, Supplier<T> loader) {
+        String key = token + '|' + url;
+        Map<String, Memo> memo = RUN_MEMO.get();
+
+        Memo cached = memo != null ? memo.get(key) : null;
+        if (cached != null && !cached.isExpired(System.currentTimeMillis())) {
+            log.trace("Lecture mémorisée : {}", url);
+            return (T) cached.value();
+        }
+
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, call);
+        if (leader != null) {
+            log.trace("Appel déjà en cours, en attente de son résultat : {}", url);
+            return (T) await(leader);
+        }
+
+        try {
+            T value = loader.get();
+            remember(memo, key, value);
+            call.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /**
+     * Oublie la lecture mémorisée de cette ressource dans le passage en cours (ressource modifiée
+     * côté Pennylane) : le prochain get la relit.
+     */
+    public void forget(String token, String url) {
+        Map<String, Memo> memo = RUN_MEMO.get();
+        if (memo != null) {
+            memo.remove(token + '|' + url);
+        }
+    }
+
+    private void remember(Map<String, Memo> memo, String key, Object value) {
+        long ttl = properties.getMemoTtlMs();
+        if (memo == null || value == null || ttl <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (memo.size() >= properties.getMemoMaxEntries()) {
+            memo.values().removeIf(m -> m.isExpired(now));
+        }
+        if (memo.size() < properties.getMemoMaxEntries()) {
+            memo.put(key, new Memo(value, now + ttl));
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
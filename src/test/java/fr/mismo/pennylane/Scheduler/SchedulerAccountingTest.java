@@ -7,7 +7,11 @@ import fr.mismo.pennylane.dao.repository.LogRepository;
 import fr.mismo.pennylane.dao.repository.SiteRepository;
 import fr.mismo.pennylane.dto.accounting.Item;
 import fr.mismo.pennylane.service.AccountingService;
+import fr.mismo.pennylane.service.CustomerDirectory;
 import fr.mismo.pennylane.service.InvoiceService;
+import fr.mismo.pennylane.service.LedgerAccountIndex;
+import fr.mismo.pennylane.service.ProductCatalogIndex;
+import fr.mismo.pennylane.service.SyncExecutor;
 import org.hibernate.service.spi.ServiceException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -15,6 +19,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.client.RestClientException;
 
@@ -52,6 +57,18 @@ class SchedulerAccountingTest {
     @Mock
     private LogRepository logRepository;
 
+    @Spy
+    private SyncExecutor syncExecutor = new SyncExecutor();
+
+    @Spy
+    private LedgerAccountIndex ledgerAccountIndex = new LedgerAccountIndex();
+
+    @Mock
+    private ProductCatalogIndex productCatalogIndex;
+
+    @Mock
+    private CustomerDirectory customerDirectory;
+
     @InjectMocks
     private schedulerAccounting scheduler;
 
@@ -0,0 +1,187 @@
+package fr.mismo.pennylane.Scheduler;
+
+import fr.mismo.pennylane.api.AccountsApi;
+import fr.mismo.pennylane.api.InvoiceApi;
+import fr.mismo.pennylane.dao.entity.SiteEntity;
+import fr.mismo.pennylane.dao.repository.EcritureRepository;
+import fr.mismo.pennylane.dao.repository.SiteRepository;
+import fr.mismo.pennylane.dto.Category;
+import fr.mismo.pennylane.dto.invoice.ChangelogResponse;
+import fr.mismo.pennylane.dto.invoice.SupplierInvoiceResponse;
+import fr.mismo.pennylane.service.CategoryCacheService;
+import fr.mismo.pennylane.service.InvoiceService;
+import fr.mismo.pennylane.service.SupplierDirectory;
+import fr.mismo.pennylane.service.SyncExecutor;
+import fr.mismo.pennylane.service.SyncWatermarkService;
+import fr.mismo.pennylane.settings.Config;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitaires pour SchedulerPurchases
+ * Vérifie l'avancée du point de reprise, l'écart des factures à date illisible
+ * et la réduction du changelog avant la relecture des factures
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Tests unitaires - SchedulerPurchases")
+class SchedulerPurchasesTest {
+
+    private static final OffsetDateTime T0 = OffsetDateTime.of(2026, 10, 1, 8, 0, 0, 0, ZoneOffset.UTC);
+
+    @Mock
+    private SiteRepository siteRepository;
+
+    @Mock
+    private InvoiceService invoiceService;
+
+    @Mock
+    private InvoiceApi invoiceApi;
+
+    @Mock
+    private EcritureRepository ecritureRepository;
+
+    @Mock
+    private AccountsApi accountsApi;
+
+    @Mock
+    private CategoryCacheService categoryCacheService;
+
+    @Mock
+    private SyncWatermarkService syncWatermarkService;
+
+    @Mock
+    private SupplierDirectory supplierDirectory;
+
+    @Spy
+    private Config config = new Config();
+
+    @Spy
+    private SyncExecutor syncExecutor = new SyncExecutor();
+
+    @InjectMocks
+    private schedulerPurchases scheduler;
+
+    private SiteEntity testSite;
+    private SupplierInvoiceResponse.SupplierInvoiceItem invoiceOk;
+    private SupplierInvoiceResponse.SupplierInvoiceItem invoiceKo;
+
+    @BeforeEach
+    void setUp() {
+        testSite = new SiteEntity();
+        testSite.setId(1);
+        testSite.setCode("TEST_SITE");
+        testSite.setPennylaneAchat(true);
+
+        config.setDaysBackward("30");
+        config.setCategoriesAFiltrer(List.of("Achats"));
+
+        invoiceOk = new SupplierInvoiceResponse.SupplierInvoiceItem();
+        invoiceOk.setId(101L);
+        invoiceKo = new SupplierInvoiceResponse.SupplierInvoiceItem();
+        invoiceKo.setId(102L);
+    }
+
+    private void givenTwoInvoicesToSync() {
+        Category category = new Category();
+        category.setId(7L);
+        category.setLabel("Achats");
+
+        when(siteRepository.findAllByPennylaneAchatTrue()).thenReturn(List.of(testSite));
+        when(categoryCacheService.getCategories(testSite)).thenReturn(List.of(category));
+        when(invoiceApi.listAllSupplierInvoices(eq(testSite), eq(List.of(7L)), any())).thenReturn(List.of(invoiceOk, invoiceKo));
+    }
+
+    @Test
+    @DisplayName("SyncPurchases - Le point de reprise ne doit pas avancer si une facture est en erreur")
+    void syncPurchases_shouldKeepWatermark_whenAnInvoiceFails() {
+        // Given - la seconde facture échoue (erreur relevée dans le forum par syncInvoice, sans exception)
+        givenTwoInvoicesToSync();
+        when(invoiceService.syncInvoice(eq(invoiceOk), eq(testSite), anyList(), any())).thenReturn(true);
+        when(invoiceService.syncInvoice(eq(invoiceKo), eq(testSite), anyList(), any())).thenReturn(false);
+
+        // When
+        scheduler.SyncPurchases();
+
+        // Then
+        verify(invoiceService, times(2)).syncInvoice(any(), eq(testSite), anyList(), any());
+        verify(syncWatermarkService, never()).enregistrer(any(), anyString(), any(), anyString(), anyInt());
+    }
+
+    @Test
+    @DisplayName("SyncPurchases - Le point de reprise doit avancer quand toutes les factures sont synchronisées")
+    void syncPurchases_shouldRecordWatermark_whenAllInvoicesSucceed() {
+        // Given
+        givenTwoInvoicesToSync();
+        when(invoiceService.syncInvoice(any(), eq(testSite), anyList(), any())).thenReturn(true);
+
+        // When
+        scheduler.SyncPurchases();
+
+        // Then
+        verify(syncWatermarkService).enregistrer(eq(testSite), eq(SyncWatermarkService.SYNC_PURCHASES), any(),
+                eq(SyncWatermarkService.MODE_COMPLETE), eq(2));
+    }
+
+    @Test
+    @DisplayName("latestChangedIds - Doit relire chaque facture une seule fois, d'après sa dernière modification")
+    void latestChangedIds_shouldKeepLatestChangePerInvoice() {
+        // Given - 101 modifiée trois fois, 102 créée puis supprimée, 103 supprimée puis recréée
+        List<ChangelogResponse.ChangelogItem> changelogs = List.of(
+                change(101L, "insert", 0),
+                change(102L, "insert", 1),
+                change(101L, "update", 2),
+                change(103L, "delete", 3),
+                change(102L, "delete", 4),
+                change(101L, "update", 5),
+                change(103L, "insert", 6)
+        );
+
+        // When
+        List<Long> ids = schedulerPurchases.latestChangedIds(changelogs);
+
+        // Then
+        assertEquals(List.of(101L, 103L), ids);
+    }
+
+    @Test
+    @DisplayName("isDatedAfter - Une date illisible doit écarter la facture sans lever d'exception")
+    void isDatedAfter_shouldSkipInvoice_whenDateIsInvalid() {
+        // Given
+        LocalDate from = LocalDate.of(2026, 1, 1);
+        SupplierInvoiceResponse.SupplierInvoiceItem invalid = new SupplierInvoiceResponse.SupplierInvoiceItem();
+        invalid.setDate("01/02/2026");
+        SupplierInvoiceResponse.SupplierInvoiceItem recent = new SupplierInvoiceResponse.SupplierInvoiceItem();
+        recent.setDate("2026-02-01");
+        SupplierInvoiceResponse.SupplierInvoiceItem undated = new SupplierInvoiceResponse.SupplierInvoiceItem();
+
+        // When / Then
+        assertFalse(schedulerPurchases.isDatedAfter(invalid, from));
+        assertTrue(schedulerPurchases.isDatedAfter(recent, from));
+        assertTrue(schedulerPurchases.isDatedAfter(undated, from));
+    }
+
+    private static ChangelogResponse.ChangelogItem change(Long id, String operation, int minutes) {
+        ChangelogResponse.ChangelogItem item = new ChangelogResponse.ChangelogItem();
+        item.setId(id);
+        item.setOperation(operation);
+        item.setProcessedAt(T0.plusMinutes(minutes));
+        return item;
+    }
+}
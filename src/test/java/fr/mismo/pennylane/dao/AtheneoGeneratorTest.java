@@ -0,0 +1,95 @@
+package fr.mismo.pennylane.dao;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests unitaires pour AtheneoGenerator
+ * Vérifie le calcul des blocs réservés par sp_COMPTEUR et leur distribution
+ */
+@DisplayName("Tests unitaires - AtheneoGenerator")
+class AtheneoGeneratorTest {
+
+    @Test
+    @DisplayName("reserver - Avec retour DERNIER, le bloc se termine à la valeur renvoyée")
+    void reserver_shouldEndBlocAtValue_whenRetourIsDernier() {
+        // Given
+        AtheneoGenerator generator = generator("TEST_RESERVER_DERNIER", 50, AtheneoGenerator.Retour.DERNIER);
+
+        // When
+        AtheneoGenerator.Bloc bloc = generator.reserver(150);
+
+        // Then
+        assertEquals(101, bloc.next().get());
+        assertEquals(150, bloc.last());
+    }
+
+    @Test
+    @DisplayName("reserver - Avec retour PREMIER, le bloc commence à la valeur renvoyée")
+    void reserver_shouldStartBlocAtValue_whenRetourIsPremier() {
+        // Given
+        AtheneoGenerator generator = generator("TEST_RESERVER_PREMIER", 50, AtheneoGenerator.Retour.PREMIER);
+
+        // When
+        AtheneoGenerator.Bloc bloc = generator.reserver(150);
+
+        // Then
+        assertEquals(150, bloc.next().get());
+        assertEquals(199, bloc.last());
+    }
+
+    @Test
+    @DisplayName("nextFromBloc - Doit distribuer le bloc puis en réserver un nouveau une fois épuisé")
+    void nextFromBloc_shouldRollOverToNextBloc() {
+        // Given - sp_COMPTEUR renvoie le dernier identifiant réservé : 3 puis 6
+        AtheneoGenerator generator = generator("TEST_NEXT_DERNIER", 3, AtheneoGenerator.Retour.DERNIER);
+        AtomicInteger compteur = new AtomicInteger();
+        AtomicInteger appels = new AtomicInteger();
+
+        // When
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(generator.nextFromBloc(() -> {
+                appels.incrementAndGet();
+                return compteur.addAndGet(3);
+            }));
+        }
+
+        // Then
+        assertEquals(List.of(1, 2, 3, 4, 5), ids);
+        assertEquals(2, appels.get());
+    }
+
+    @Test
+    @DisplayName("nextFromBloc - Avec retour PREMIER, doit distribuer les identifiants à partir de la valeur renvoyée")
+    void nextFromBloc_shouldRollOverToNextBloc_whenRetourIsPremier() {
+        // Given - sp_COMPTEUR renvoie le premier identifiant réservé : 10 puis 13
+        AtheneoGenerator generator = generator("TEST_NEXT_PREMIER", 3, AtheneoGenerator.Retour.PREMIER);
+        AtomicInteger compteur = new AtomicInteger(7);
+
+        // When
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(generator.nextFromBloc(() -> compteur.addAndGet(3)));
+        }
+
+        // Then
+        assertEquals(List.of(10, 11, 12, 13), ids);
+    }
+
+    // Compteur propre à chaque test : les blocs sont partagés par nom de compteur
+    private static AtheneoGenerator generator(String compteur, int bloc, AtheneoGenerator.Retour retour) {
+        AtheneoGenerator generator = new AtheneoGenerator();
+        ReflectionTestUtils.setField(generator, "compteur", compteur);
+        ReflectionTestUtils.setField(generator, "bloc", bloc);
+        ReflectionTestUtils.setField(generator, "retour", retour);
+        return generator;
+    }
+}
@@ -8,14 +8,23 @@ import fr.mismo.pennylane.dao.entity.SiteEntity;
 import fr.mismo.pennylane.dao.repository.*;
 import fr.mismo.pennylane.dto.accounting.Item;
 import fr.mismo.pennylane.dto.ath.Ecriture;
+import fr.mismo.pennylane.dto.customer.Customer;
 import fr.mismo.pennylane.dto.invoice.InvoiceResponse;
+import fr.mismo.pennylane.settings.CircuitBreakerProperties;
+import fr.mismo.pennylane.util.CircuitBreakerRegistry;
+import fr.mismo.pennylane.util.EndpointFamily;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -75,6 +84,21 @@ class AccountingServiceTest {
     @Mock
     private AccountsApi accountsApi;
 
+    @Spy
+    private LedgerAccountIndex ledgerAccountIndex = new LedgerAccountIndex();
+
+    @Mock
+    private ProductCatalogIndex productCatalogIndex;
+
+    @Mock
+    private CustomerDirectory customerDirectory;
+
+    @Spy
+    private CircuitBreakerRegistry circuitBreakers = new CircuitBreakerRegistry(new CircuitBreakerProperties());
+
+    @Spy
+    private ShortTransactions shortTransactions = new ShortTransactions(mock(PlatformTransactionManager.class), mock(ObjectProvider.class));
+
     @InjectMocks
     private AccountingService accountingService;
 
@@ -166,6 +190,23 @@ class AccountingServiceTest {
         verify(invoiceApi, never()).createInvoice(any(), any(), anyBoolean());
     }
 
+    @Test
+    @DisplayName("syncEcriture - Doit laisser le lot en attente si un disjoncteur est ouvert pour le site")
+    void syncEcriture_shouldLeaveLotPending_whenCircuitIsOpen() {
+        // Given
+        String siteKey = circuitBreakers.siteKey(testSite);
+        for (int i = 0; i < new CircuitBreakerProperties().getFailureThreshold(); i++) {
+            circuitBreakers.recordFailure(siteKey, EndpointFamily.INVOICES);
+        }
+
+        // When
+        accountingService.syncEcriture(1, testSite, testComptes);
+
+        // Then
+        verify(ecritureRepository, never()).getEcrituresToExport(anyInt());
+        verify(logRepository, never()).traiterLot(anyInt(), anyString(), anyBoolean());
+    }
+
     @Test
     @DisplayName("removeTrailingZerosString - Doit supprimer les zéros à la fin")
     void removeTrailingZerosString_shouldRemoveTrailingZeros() {
@@ -269,4 +310,75 @@ class AccountingServiceTest {
         // When & Then - vérifie que la méthode gère les cas avec des données partielles
         assertDoesNotThrow(() -> accountingService.syncEcriture(ecritureInt, testSite, testComptes));
     }
+
+    @Test
+    @DisplayName("syncEcriture - Doit lire la facture Athénéo une seule fois par pièce")
+    void syncEcriture_shouldReadFactureOncePerPiece() {
+        // Given
+        Integer ecritureInt = 1;
+        List<Ecriture> ecritures = new ArrayList<>();
+        Ecriture ecriture = new Ecriture();
+        ecriture.setNoEcriturePiece(1);
+        ecriture.setNoVFacture(100);
+        ecritures.add(ecriture);
+
+        when(ecritureRepository.getEcrituresToExport(ecritureInt)).thenReturn(ecritures);
+        when(factureRepository.getFacture(anyInt())).thenReturn(Collections.emptyList());
+
+        // When
+        accountingService.syncEcriture(ecritureInt, testSite, testComptes);
+
+        // Then - processProducts et processInvoice partagent la lecture du lot
+        verify(factureRepository, times(1)).getFacture(100);
+    }
+
+    @Test
+    @DisplayName("syncEcriture - En chaîne, chaque étape doit traiter les pièces dans l'ordre du lot")
+    void syncEcriture_pipeline_shouldKeepPieceOrder() {
+        // Given
+        ReflectionTestUtils.setField(accountingService, "lotPipeline", true);
+        Integer ecritureInt = 1;
+        List<Ecriture> ecritures = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Ecriture ecriture = new Ecriture();
+            ecriture.setNoEcriturePiece(i);
+            ecriture.setNoVFacture(i * 100);
+            ecritures.add(ecriture);
+        }
+
+        when(ecritureRepository.getEcrituresToExport(ecritureInt)).thenReturn(ecritures);
+        when(factureRepository.getFacture(anyInt())).thenReturn(Collections.emptyList());
+
+        // When
+        accountingService.syncEcriture(ecritureInt, testSite, testComptes);
+
+        // Then - une seule lecture par pièce, dans l'ordre, et le lot est clôturé une fois toutes les étapes terminées
+        InOrder inOrder = inOrder(factureRepository);
+        inOrder.verify(factureRepository).getFacture(100);
+        inOrder.verify(factureRepository).getFacture(200);
+        inOrder.verify(factureRepository).getFacture(300);
+        verify(logRepository).traiterLot(eq(ecritureInt), anyString(), eq(false));
+    }
+
+    @Test
+    @DisplayName("isUpToDate - Un client identique dans Pennylane ne doit pas être mis à jour")
+    void customerIsUpToDate_shouldIgnoreExternalReferenceAndEmptyFields() {
+        // Given - client connu de Pennylane et client issu du mapping (référence externe tirée au hasard)
+        Customer known = new Customer();
+        known.setId(42L);
+        known.setName("ACME");
+        known.setPhone(null);
+        known.setExternalReference("ref-pennylane");
+
+        Customer wanted = new Customer();
+        wanted.setName("ACME");
+        wanted.setPhone("");
+        wanted.setExternalReference("ref-aleatoire");
+
+        // Then
+        assertTrue(CustomerDirectory.isUpToDate(wanted, known));
+
+        wanted.setName("ACME SAS");
+        assertFalse(CustomerDirectory.isUpToDate(wanted, known));
+    }
 }
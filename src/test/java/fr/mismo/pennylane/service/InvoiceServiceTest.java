@@ -5,19 +5,31 @@ import fr.mismo.pennylane.api.InvoiceApi;
 import fr.mismo.pennylane.api.SupplierApi;
 import fr.mismo.pennylane.dao.entity.SiteEntity;
 import fr.mismo.pennylane.dao.repository.LogRepository;
+import fr.mismo.pennylane.dto.invoice.InvoiceResponse;
+import fr.mismo.pennylane.dto.invoice.SupplierInvoiceFingerprint;
 import fr.mismo.pennylane.dto.invoice.SupplierInvoiceResponse;
+import fr.mismo.pennylane.dto.invoice.Transaction;
 import fr.mismo.pennylane.dto.supplier.Supplier;
+import fr.mismo.pennylane.model.SupplierInvoiceState;
+import fr.mismo.pennylane.settings.CircuitBreakerProperties;
 import fr.mismo.pennylane.settings.WsDocumentProperties;
+import fr.mismo.pennylane.util.CircuitBreakerRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.lang.reflect.Method;
+import java.math.BigDecimal;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -52,6 +64,18 @@ class InvoiceServiceTest {
     @Mock
     private LogHelper logHelper;
 
+    @Mock
+    private SupplierDirectory supplierDirectory;
+
+    @Mock
+    private ReglementBatchWriter reglementBatchWriter;
+
+    @Spy
+    private CircuitBreakerRegistry circuitBreakers = new CircuitBreakerRegistry(new CircuitBreakerProperties());
+
+    @Spy
+    private ShortTransactions shortTransactions = new ShortTransactions(mock(PlatformTransactionManager.class), mock(ObjectProvider.class));
+
     @InjectMocks
     private InvoiceService invoiceService;
 
@@ -315,4 +339,83 @@ class InvoiceServiceTest {
         // When & Then
         assertDoesNotThrow(() -> invoiceService.processError(invoice, null));
     }
+
+    @Test
+    @DisplayName("classifySupplierInvoices - Doit distinguer factures nouvelles, modifiées et inchangées en un appel")
+    void classifySupplierInvoices_shouldSplitNewChangedAndUnchanged() {
+        // Given
+        SupplierInvoiceResponse.SupplierInvoiceItem unchanged = supplierInvoice(1L, "100.00");
+        SupplierInvoiceResponse.SupplierInvoiceItem changed = supplierInvoice(2L, "150.00");
+        SupplierInvoiceResponse.SupplierInvoiceItem created = supplierInvoice(3L, "100.00");
+
+        when(logRepository.findSupplierInvoiceFingerprints("1,2,3"))
+                .thenReturn(List.of(fingerprint("1"), fingerprint("2")));
+
+        // When
+        Map<Long, SupplierInvoiceState> states = invoiceService.classifySupplierInvoices(List.of(unchanged, changed, created), testSite);
+
+        // Then
+        assertEquals(SupplierInvoiceState.INCHANGEE, states.get(1L));
+        assertEquals(SupplierInvoiceState.MODIFIEE, states.get(2L));
+        assertEquals(SupplierInvoiceState.NOUVELLE, states.get(3L));
+        verify(logRepository, never()).checkIfSupplierInvoiceExists(anyString());
+    }
+
+    @Test
+    @DisplayName("updateReglementsV2 - Doit écrire tous les règlements d'une facture en un seul appel")
+    void updateReglementsV2_shouldWriteAllTransactionsInOneCall() {
+        // Given
+        InvoiceResponse invoiceResponse = new InvoiceResponse();
+        invoiceResponse.setId(42L);
+        InvoiceResponse.UrlWrapper matched = new InvoiceResponse.UrlWrapper();
+        matched.setUrl("https://pennylane/matched_transactions");
+        invoiceResponse.setMatchedTransactions(matched);
+
+        when(invoiceApi.getCustomerInvoiceById(testSite, "42")).thenReturn(invoiceResponse);
+        when(invoiceApi.getAllMatchedTransactions(testSite, matched.getUrl()))
+                .thenReturn(List.of(transaction(1L, "60.00"), transaction(2L, "40.00")));
+        when(reglementBatchWriter.write(anyList())).thenReturn(Collections.emptyList());
+
+        // When
+        invoiceService.updateReglementsV2("42", testSite);
+
+        // Then
+        verify(reglementBatchWriter).write(argThat(lignes -> lignes.size() == 2
+                && lignes.stream().allMatch(l -> "42".equals(l.invoiceId()))));
+        verify(logRepository, never()).purgeObsoleteTransactions(anyString(), anyString());
+        verify(logRepository, never()).creerReglement(anyString(), anyLong(), anyDouble(), anyString());
+    }
+
+    private static Transaction transaction(Long id, String amount) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setAmount(amount);
+        transaction.setCreatedAt("2026-10-01T10:00:00Z");
+        return transaction;
+    }
+
+    private static SupplierInvoiceResponse.SupplierInvoiceItem supplierInvoice(Long id, String totalTtc) {
+        SupplierInvoiceResponse.SupplierInvoiceItem invoice = new SupplierInvoiceResponse.SupplierInvoiceItem();
+        invoice.setId(id);
+        invoice.setLabel("Facture " + id);
+        invoice.setDate("2026-10-01");
+        invoice.setInvoiceNumber("F-" + id);
+        invoice.setCurrencyAmountBeforeTax("83.33");
+        invoice.setCurrencyAmount(totalTtc);
+        invoice.setCurrencyTax("16.67");
+        return invoice;
+    }
+
+    private static SupplierInvoiceFingerprint fingerprint(String id) {
+        SupplierInvoiceFingerprint fingerprint = mock(SupplierInvoiceFingerprint.class);
+        lenient().when(fingerprint.getInvoiceId()).thenReturn(id);
+        lenient().when(fingerprint.getObjet()).thenReturn("Facture " + id);
+        lenient().when(fingerprint.getDateFacture()).thenReturn("2026-10-01");
+        lenient().when(fingerprint.getCodSite()).thenReturn("TEST_SITE");
+        lenient().when(fingerprint.getTotalHt()).thenReturn(new BigDecimal("83.3300"));
+        lenient().when(fingerprint.getTotalTtc()).thenReturn(new BigDecimal("100.0000"));
+        lenient().when(fingerprint.getTotalTva()).thenReturn(new BigDecimal("16.6700"));
+        lenient().when(fingerprint.getInvoiceNumber()).thenReturn("F-" + id);
+        return fingerprint;
+    }
 }
@@ -0,0 +1,60 @@
+package fr.mismo.pennylane.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour PiecePipeline
+ * Vérifie que la chaîne se termine toujours, même quand une étape s'arrête en cours de lot
+ */
+@DisplayName("Tests unitaires - PiecePipeline")
+class PiecePipelineTest {
+
+    @Test
+    @DisplayName("run - En chaîne, une erreur fatale dans une étape doit être relancée sans bloquer les autres étapes")
+    void run_shouldEndAndRethrow_whenStageFailsWithError() {
+        // Given - files d'une place : l'étape précédente se bloquerait sur la file de l'étape arrêtée
+        List<Integer> lastStage = new CopyOnWriteArrayList<>();
+        PiecePipeline<Integer> pipeline = new PiecePipeline<Integer>("test", true, 1, () -> false)
+                .stage("premiere", piece -> true)
+                .stage("deuxieme", piece -> {
+                    if (piece == 2) {
+                        throw new StackOverflowError();
+                    }
+                    return true;
+                })
+                .stage("derniere", lastStage::add);
+
+        // When
+        IllegalStateException exception = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(IllegalStateException.class, () -> pipeline.run(List.of(1, 2, 3, 4, 5, 6))));
+
+        // Then - l'erreur est relevée, les pièces suivantes sont abandonnées
+        assertInstanceOf(StackOverflowError.class, exception.getCause());
+        assertFalse(lastStage.contains(2));
+        assertFalse(lastStage.contains(3));
+    }
+
+    @Test
+    @DisplayName("run - En chaîne, chaque pièce doit passer toutes les étapes dans l'ordre du lot")
+    void run_shouldProcessAllPiecesInOrder() {
+        // Given
+        List<Integer> lastStage = new CopyOnWriteArrayList<>();
+        PiecePipeline<Integer> pipeline = new PiecePipeline<Integer>("test", true, 1, () -> false)
+                .stage("premiere", piece -> true)
+                .stage("derniere", lastStage::add);
+
+        // When
+        boolean completed = pipeline.run(List.of(1, 2, 3));
+
+        // Then
+        assertTrue(completed);
+        assertEquals(List.of(1, 2, 3), lastStage);
+    }
+}
@@ -0,0 +1,114 @@
+package fr.mismo.pennylane.service;
+
+import fr.mismo.pennylane.api.ChangelogApi;
+import fr.mismo.pennylane.api.ProductApi;
+import fr.mismo.pennylane.dao.entity.SiteEntity;
+import fr.mismo.pennylane.dto.invoice.ChangelogResponse;
+import fr.mismo.pennylane.dto.product.Product;
+import fr.mismo.pennylane.settings.ReferentialDirectoryProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitaires pour ProductCatalogIndex
+ * Vérifie le comportement commun des référentiels (ReferentialDirectory) : catalogue complet ou partiel, changelog
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Tests unitaires - ProductCatalogIndex")
+class ProductCatalogIndexTest {
+
+    @Mock
+    private ProductApi productApi;
+
+    @Mock
+    private ChangelogApi changelogApi;
+
+    @Spy
+    private ReferentialDirectoryProperties properties = new ReferentialDirectoryProperties();
+
+    @InjectMocks
+    private ProductCatalogIndex productCatalogIndex;
+
+    private SiteEntity testSite;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        testSite = new SiteEntity();
+        testSite.setId(1);
+        testSite.setCode("TEST_SITE");
+
+        product = new Product();
+        product.setId(10);
+        product.setExternalReference("P10");
+    }
+
+    @Test
+    @DisplayName("findByExternalReference - Catalogue complet : une référence absente n'est pas recherchée dans Pennylane")
+    void findByExternalReference_shouldNotSearch_whenCatalogIsComplete() {
+        // Given
+        when(productApi.listAllProducts(testSite)).thenReturn(List.of(product));
+
+        // When
+        Product found = productCatalogIndex.findByExternalReference(testSite, "P10");
+        Product missing = productCatalogIndex.findByExternalReference(testSite, "P99");
+
+        // Then
+        assertSame(product, found);
+        assertNull(missing);
+        verify(productApi, never()).findProductByExternalReference(any(), anyString());
+    }
+
+    @Test
+    @DisplayName("findByExternalReference - Chargement en échec : la référence est recherchée puis mémorisée")
+    void findByExternalReference_shouldSearchThenRemember_whenLoadFailed() {
+        // Given
+        when(productApi.listAllProducts(testSite)).thenReturn(null);
+        when(productApi.findProductByExternalReference(testSite, "P10")).thenReturn(product);
+
+        // When
+        Product first = productCatalogIndex.findByExternalReference(testSite, "P10");
+        Product second = productCatalogIndex.findByExternalReference(testSite, "P10");
+
+        // Then
+        assertSame(product, first);
+        assertSame(product, second);
+        verify(productApi, times(1)).findProductByExternalReference(testSite, "P10");
+    }
+
+    @Test
+    @DisplayName("refresh - Un produit du changelog non relu est retiré et recherché dans Pennylane à sa prochaine demande")
+    void refresh_shouldSearchPennylane_whenChangedProductCannotBeReread() {
+        // Given - catalogue complet, puis modification de P10 dont la relecture échoue
+        when(productApi.listAllProducts(testSite)).thenReturn(List.of(product));
+        productCatalogIndex.refresh(testSite);
+
+        ChangelogResponse.ChangelogItem change = new ChangelogResponse.ChangelogItem();
+        change.setId(10L);
+        change.setOperation("update");
+        when(changelogApi.listAllChangelogs(eq(testSite), eq("products"), any())).thenReturn(List.of(change));
+        when(productApi.retrieveProduct("10", testSite)).thenReturn(null);
+        when(productApi.findProductByExternalReference(testSite, "P10")).thenReturn(product);
+
+        // When
+        productCatalogIndex.refresh(testSite);
+        Product found = productCatalogIndex.findByExternalReference(testSite, "P10");
+
+        // Then
+        assertSame(product, found);
+        verify(productApi, times(1)).listAllProducts(testSite);
+        verify(productApi).findProductByExternalReference(testSite, "P10");
+    }
+}
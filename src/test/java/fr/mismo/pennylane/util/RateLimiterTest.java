@@ -0,0 +1,52 @@
+package fr.mismo.pennylane.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour RateLimiter
+ * Vérifie la lecture de l'en-tête Retry-After
+ */
+@DisplayName("Tests unitaires - RateLimiter")
+class RateLimiterTest {
+
+    @Test
+    @DisplayName("parseRetryAfterMs - Un nombre de secondes doit être converti en millisecondes")
+    void parseRetryAfterMs_shouldConvertSeconds() {
+        // When / Then
+        assertEquals(120000L, RateLimiter.parseRetryAfterMs("120"));
+        assertEquals(0L, RateLimiter.parseRetryAfterMs(" 0 "));
+    }
+
+    @Test
+    @DisplayName("parseRetryAfterMs - Une date HTTP doit donner le délai restant, jamais négatif")
+    void parseRetryAfterMs_shouldConvertHttpDate() {
+        // Given
+        String future = ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(30).format(DateTimeFormatter.RFC_1123_DATE_TIME);
+        String past = ZonedDateTime.now(ZoneOffset.UTC).minusSeconds(30).format(DateTimeFormatter.RFC_1123_DATE_TIME);
+
+        // When
+        Long futureMs = RateLimiter.parseRetryAfterMs(future);
+        Long pastMs = RateLimiter.parseRetryAfterMs(past);
+
+        // Then - la date HTTP est à la seconde près
+        assertNotNull(futureMs);
+        assertTrue(futureMs > 28000 && futureMs <= 30000, "délai : " + futureMs);
+        assertEquals(0L, pastMs);
+    }
+
+    @Test
+    @DisplayName("parseRetryAfterMs - Une valeur absente ou illisible doit donner null")
+    void parseRetryAfterMs_shouldReturnNull_whenValueIsMissingOrInvalid() {
+        // When / Then
+        assertNull(RateLimiter.parseRetryAfterMs(null));
+        assertNull(RateLimiter.parseRetryAfterMs("  "));
+        assertNull(RateLimiter.parseRetryAfterMs("bientôt"));
+    }
+}
@@ -0,0 +1,101 @@
+package fr.mismo.pennylane.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour RetryPolicy
+ * Vérifie le backoff (plafond, gigue, Retry-After) et la règle de rejeu des POST/PUT
+ */
+@DisplayName("Tests unitaires - RetryPolicy")
+class RetryPolicyTest {
+
+    private final RetryPolicy retryPolicy = new RetryPolicy();
+
+    @Test
+    @DisplayName("backoffDelay - Doit doubler à chaque essai, gigue comprise entre la moitié et la totalité du délai")
+    void backoffDelay_shouldGrowExponentiallyWithJitter() {
+        for (int i = 0; i < 100; i++) {
+            // When
+            long first = retryPolicy.backoffDelay(1, null);
+            long third = retryPolicy.backoffDelay(3, null);
+
+            // Then - 500 ms puis 2000 ms, dont la moitié tirée au hasard
+            assertTrue(first >= 250 && first <= 500, "essai 1 : " + first);
+            assertTrue(third >= 1000 && third <= 2000, "essai 3 : " + third);
+        }
+    }
+
+    @Test
+    @DisplayName("backoffDelay - Doit être plafonné à MAX_BACKOFF_MS")
+    void backoffDelay_shouldBeCapped() {
+        // When
+        long delay = retryPolicy.backoffDelay(20, null);
+
+        // Then
+        assertTrue(delay >= ApiConstants.RateLimit.MAX_BACKOFF_MS / 2 && delay <= ApiConstants.RateLimit.MAX_BACKOFF_MS);
+    }
+
+    @Test
+    @DisplayName("backoffDelay - La gigue doit étaler les délais d'un même essai")
+    void backoffDelay_shouldSpreadDelays() {
+        // Given
+        Set<Long> delays = new HashSet<>();
+
+        // When
+        for (int i = 0; i < 50; i++) {
+            delays.add(retryPolicy.backoffDelay(3, null));
+        }
+
+        // Then
+        assertTrue(delays.size() > 1);
+    }
+
+    @Test
+    @DisplayName("backoffDelay - Doit suivre le Retry-After, dans la limite de MAX_BACKOFF_MS")
+    void backoffDelay_shouldFollowRetryAfter() {
+        // When / Then
+        assertEquals(2000, retryPolicy.backoffDelay(1, 2000L));
+        assertEquals(0, retryPolicy.backoffDelay(3, 0L));
+        assertEquals(ApiConstants.RateLimit.MAX_BACKOFF_MS, retryPolicy.backoffDelay(1, 120000L));
+    }
+
+    @Test
+    @DisplayName("isRetryable - Un 5xx n'est rejoué que pour une méthode idempotente, un 429 toujours")
+    void isRetryable_shouldReplayServerErrorsOnlyForIdempotentMethods() {
+        // When / Then
+        assertTrue(retryPolicy.isRetryable(HttpMethod.GET, 503));
+        assertTrue(retryPolicy.isRetryable(HttpMethod.DELETE, 500));
+        assertFalse(retryPolicy.isRetryable(HttpMethod.POST, 503));
+        assertFalse(retryPolicy.isRetryable(HttpMethod.PUT, 500));
+        assertTrue(retryPolicy.isRetryable(HttpMethod.POST, 429));
+        assertTrue(retryPolicy.isRetryable(HttpMethod.PUT, 429));
+        assertFalse(retryPolicy.isRetryable(HttpMethod.GET, 404));
+    }
+
+    @Test
+    @DisplayName("isRetryable - Une connexion refusée est rejouée pour toute méthode, un délai dépassé seulement en lecture")
+    void isRetryable_shouldReplayIoErrorsAccordingToMethod() {
+        // Given
+        Exception refused = new ResourceAccessException("refus", new ConnectException("Connection refused"));
+        Exception timeout = new ResourceAccessException("délai", new SocketTimeoutException("Read timed out"));
+
+        // When / Then
+        assertTrue(retryPolicy.isRetryable(HttpMethod.POST, refused));
+        assertTrue(retryPolicy.isRetryable(HttpMethod.PUT, refused));
+        assertFalse(retryPolicy.isRetryable(HttpMethod.POST, timeout));
+        assertTrue(retryPolicy.isRetryable(HttpMethod.GET, timeout));
+        assertTrue(retryPolicy.isRetryable(HttpMethod.GET, new IOException("coupure")));
+        assertFalse(retryPolicy.isRetryable(HttpMethod.GET, new IllegalStateException("autre")));
+    }
+}
@@ -0,0 +1,84 @@
+package fr.mismo.pennylane.util;
+
+import fr.mismo.pennylane.settings.SingleFlightProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour SingleFlight
+ * Vérifie la portée des lectures mémorisées : un passage, jamais au-delà
+ */
+@DisplayName("Tests unitaires - SingleFlight")
+class SingleFlightTest {
+
+    private final SingleFlight singleFlight = new SingleFlight(new SingleFlightProperties());
+
+    @Test
+    @DisplayName("get - Dans un passage, une lecture déjà faite doit être rendue sans rappeler Pennylane")
+    void get_shouldReuseValue_withinRun() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        SingleFlight.runScoped(() -> {
+            singleFlight.get("token", "url", calls::incrementAndGet);
+            singleFlight.get("token", "url", calls::incrementAndGet);
+        });
+
+        // Then
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    @DisplayName("get - Un passage ne doit pas voir les lectures mémorisées d'un autre passage")
+    void get_shouldNotShareValues_betweenRuns() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+
+        // When - deux passages imbriqués, comme deux traitements simultanés
+        SingleFlight.runScoped(() -> {
+            singleFlight.get("token", "url", calls::incrementAndGet);
+            SingleFlight.runScoped(() -> singleFlight.get("token", "url", calls::incrementAndGet));
+            // Then - la fin du second passage n'a pas effacé les lectures du premier
+            assertEquals(1, (int) singleFlight.get("token", "url", calls::incrementAndGet));
+        });
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    @DisplayName("get - Hors passage, rien ne doit être mémorisé")
+    void get_shouldNotRemember_outsideRun() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        SingleFlight.runScoped(() -> singleFlight.get("token", "url", calls::incrementAndGet));
+        singleFlight.get("token", "url", calls::incrementAndGet);
+        singleFlight.get("token", "url", calls::incrementAndGet);
+
+        // Then
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    @DisplayName("forget - Une ressource oubliée doit être relue au get suivant du passage")
+    void forget_shouldRereadResource_withinRun() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        SingleFlight.runScoped(() -> {
+            singleFlight.get("token", "url", calls::incrementAndGet);
+            singleFlight.forget("token", "url");
+            singleFlight.get("token", "url", calls::incrementAndGet);
+        });
+
+        // Then
+        assertEquals(2, calls.get());
+    }
+}
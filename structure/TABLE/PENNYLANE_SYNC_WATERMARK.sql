@@ -0,0 +1,27 @@
+-- Script de création de la table PENNYLANE_SYNC_WATERMARK
+-- Point de reprise de chaque traitement par site : date (UTC) du début du dernier passage réussi.
+-- FORCER_COMPLETE = 1 fait repartir le prochain passage sur la période complète (facture.daysBackward).
+IF NOT EXISTS (SELECT * FROM sys.objects WHERE object_id = OBJECT_ID(N'[dbo].[PENNYLANE_SYNC_WATERMARK]') AND type in (N'U'))
+BEGIN
+    CREATE TABLE [dbo].[PENNYLANE_SYNC_WATERMARK](
+        [NO_T_SITE] [int] NOT NULL,
+        [TRAITEMENT] [varchar](50) NOT NULL,
+        [DERNIERE_SYNCHRO] [datetime2](3) NULL,
+        [MODE] [varchar](20) NULL,
+        [NB_FACTURES] [int] NULL,
+        [FORCER_COMPLETE] [bit] NOT NULL DEFAULT (0),
+        [DATE_MAJ] [datetime] NOT NULL DEFAULT (GETDATE()),
+        CONSTRAINT [PK_PENNYLANE_SYNC_WATERMARK] PRIMARY KEY CLUSTERED
+        (
+            [NO_T_SITE] ASC,
+            [TRAITEMENT] ASC
+        ) WITH (PAD_INDEX = OFF, STATISTICS_NORECOMPUTE = OFF, IGNORE_DUP_KEY = OFF, ALLOW_ROW_LOCKS = ON, ALLOW_PAGE_LOCKS = ON) ON [PRIMARY]
+    ) ON [PRIMARY]
+
+    PRINT 'Table PENNYLANE_SYNC_WATERMARK créée avec succès.'
+END
+ELSE
+BEGIN
+    PRINT 'La table PENNYLANE_SYNC_WATERMARK existe déjà.'
+END
+GO
@@ -0,0 +1,51 @@
+IF EXISTS (SELECT * FROM sys.objects WHERE object_id = OBJECT_ID(N'[SP_PENNYLANE_EXPORT_FACTURE_COURRIER_LOT]') AND is_ms_shipped = 0 AND [type] IN ('P'))
+DROP PROCEDURE [dbo].[SP_PENNYLANE_EXPORT_FACTURE_COURRIER_LOT]
+GO
+
+SET ANSI_NULLS ON
+GO
+SET QUOTED_IDENTIFIER ON
+GO
+
+/* ////////////////////////////////////////////////////////////////////////
+
+Nom de la procédure stockée : [SP_PENNYLANE_EXPORT_FACTURE_COURRIER_LOT]
+
+Description :
+Variante ensembliste de SP_PENNYLANE_EXPORT_FACTURE_COURRIER : un courrier par facture
+pour toutes les factures d'un lot d'écritures, avec la colonne noVFacture.
+@NO_V_FACTURES : liste de NO_V_FACTURE séparés par des virgules.
+Si une version spécifique de SP_PENNYLANE_EXPORT_FACTURE_COURRIER existe, aucune ligne
+n'est renvoyée et l'interface repasse par la procédure unitaire.
+
+Procédure appelée par :
+Interface PENNYLANE.
+
+Historique des mises à jour :
+
+> v001 - VABE - 18/10/2026 - Création
+
+//////////////////////////////////////////////////////////////////////// */
+
+CREATE PROCEDURE [dbo].[SP_PENNYLANE_EXPORT_FACTURE_COURRIER_LOT]
+    @NO_V_FACTURES VARCHAR(MAX)
+AS
+BEGIN
+    SET NOCOUNT ON;
+
+    DECLARE @SPECIFIQUE BIT = 0;
+    IF exists (select * from sysobjects
+    where id = object_id(N'[spe_SP_PENNYLANE_EXPORT_FACTURE_COURRIER]')
+    and OBJECTPROPERTY(id, N'IsProcedure') = 1)
+        SET @SPECIFIQUE = 1;
+
+    SELECT C.*, C.NO_V_FACTURE AS noVFacture
+    FROM (
+        SELECT C.*, ROW_NUMBER() OVER (PARTITION BY C.NO_V_FACTURE ORDER BY C.NO_COURRIE) AS RANG
+        FROM COURRIER C
+        INNER JOIN (SELECT DISTINCT TRY_CAST(value AS INT) AS NO_V_FACTURE FROM STRING_SPLIT(@NO_V_FACTURES, ',')) K ON K.NO_V_FACTURE = C.NO_V_FACTURE
+        WHERE @SPECIFIQUE = 0
+    ) C
+    WHERE C.RANG = 1
+END
+GO
@@ -0,0 +1,99 @@
+if exists (select * from sys.objects where object_id = object_id(N'[SP_PENNYLANE_GET_FACTURES_LOT]') and is_ms_shipped = 0 and [type] in ('P'))
+drop procedure [SP_PENNYLANE_GET_FACTURES_LOT]
+GO
+
+SET QUOTED_IDENTIFIER ON
+GO
+SET ANSI_NULLS ON
+GO
+
+/* ////////////////////////////////////////////////////////////////////////
+
+Nom de la procédure stockée : SP_PENNYLANE_GET_FACTURES_LOT
+
+Version : 001
+
+Description :
+Variante ensembliste de SP_PENNYLANE_GET_FACTURE : factures et lignes de toutes les
+factures d'un lot d'écritures en un seul appel.
+@NO_V_FACTURES : liste de NO_V_FACTURE séparés par des virgules.
+
+Les factures sans courrier ne sont pas renvoyées : l'interface les relit alors une par une
+avec SP_PENNYLANE_GET_FACTURE, qui lève l'erreur attendue.
+Si une version spécifique de SP_PENNYLANE_GET_FACTURE existe, aucune ligne n'est renvoyée
+et l'interface repasse par la procédure unitaire.
+
+Historique des mises à jour :
+
+> v001 - VABE - 18/10/2026 - Création
+
+//////////////////////////////////////////////////////////////////////// */
+
+CREATE PROCEDURE [SP_PENNYLANE_GET_FACTURES_LOT]
+    @NO_V_FACTURES VARCHAR(MAX)
+AS
+BEGIN
+    SET NOCOUNT ON;
+
+    DECLARE @SPECIFIQUE BIT = 0;
+    IF exists (select * from sysobjects
+    where id = object_id(N'[spe_SP_PENNYLANE_GET_FACTURE]')
+    and OBJECTPROPERTY(id, N'IsProcedure') = 1)
+        SET @SPECIFIQUE = 1;
+
+    SELECT
+        -- Colonnes de la table V_FACTURE (Facture principale)
+        F.NO_V_FACTURE AS noVFacture,
+        F.CHRONO_V_FACTURE AS chronoVFacture,
+        F.COD_SITE AS codSite,
+        F.COD_ETAT AS codEtat,
+        F.DATE_FACTURE AS dateFacture,
+        F.MTT_HT AS mttHt,
+        F.MTT_TTC AS mttTtc,
+        F.NETAPAYER AS netAPayer,
+        F.OBJET + ' - ' + F.CHORUS_NUM_FACTURE AS objet,
+        F.NO_SOCIETE AS noSociete,
+        SOC.PENNYLANE_ID AS customerPennylaneId,
+        F.PENNYLANE_ID AS invoicePennylaneId,
+        -- Colonnes de la table V_L_FACTURE (Lignes de facture)
+        LF.NO_V_L_FACTURE AS noVLFacture,
+        LF.NO_LIGNE AS noLigne,
+        LF.TYPE_LIGNE AS typeLigne,
+        LF.NO_PRODUIT AS noProduit,
+        PROD.PENNYLANE_ID AS idProduit,
+        LF.DES_COM AS desCom,
+        TAX.CODE_CPTE_TAXE AS codTaxe,
+        TAX.TAUX AS tauxTaxe,
+        LF.QTE_FAC AS qteFac,
+        LF.PUVB AS puvb,
+        LF.QTE_FAC * (LF.PUVB * (1 + (TAX.TAUX / 100))) AS puNet,
+        LF.QTE_FAC * (LF.PUVB * (1 + (TAX.TAUX / 100))) AS totalNet,
+        LF.TOTALHT AS totalHT,
+        LF.DATE_DEBUT AS startDate,
+        LF.DATE_FIN AS endDate,
+        TRIM(COALESCE(LF.CPTE, '-1')) as CPTE
+    FROM
+        V_FACTURE F
+    INNER JOIN
+        (SELECT DISTINCT TRY_CAST(value AS INT) AS NO_V_FACTURE FROM STRING_SPLIT(@NO_V_FACTURES, ',')) K ON K.NO_V_FACTURE = F.NO_V_FACTURE
+    INNER JOIN
+        V_L_FACTURE LF ON LF.NO_V_FACTURE = F.NO_V_FACTURE
+    INNER JOIN
+        PRODUITS PROD ON LF.NO_PRODUIT = PROD.NO_PRODUIT
+    INNER JOIN
+        T_TAXES TAX ON LF.COD_TAXE1 = TAX.CODE
+    INNER JOIN
+        SOCIETE SOC ON SOC.NO_SOCIETE = F.NO_SOCIETE
+    WHERE
+        @SPECIFIQUE = 0
+    AND
+        EXISTS (SELECT 1 FROM COURRIER C WHERE C.NO_V_FACTURE = F.NO_V_FACTURE)
+    AND
+        LF.QTE_FAC != 0
+    AND
+        LF.TOTALHT != 0
+    ORDER BY
+        F.NO_V_FACTURE, LF.NO_LIGNE
+
+END
+GO
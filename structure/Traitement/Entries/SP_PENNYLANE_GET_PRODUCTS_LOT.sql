@@ -0,0 +1,72 @@
+IF EXISTS (SELECT * FROM sys.objects
+           WHERE object_id = object_id(N'[SP_PENNYLANE_GET_PRODUCTS_LOT]')
+           AND is_ms_shipped = 0
+           AND [type] IN ('P'))
+    DROP PROCEDURE [SP_PENNYLANE_GET_PRODUCTS_LOT]
+GO
+
+SET QUOTED_IDENTIFIER ON
+GO
+SET ANSI_NULLS ON
+GO
+
+/* ////////////////////////////////////////////////////////////////////////
+Nom de la procédure stockée : SP_PENNYLANE_GET_PRODUCTS_LOT
+No Version : 001
+Description :
+    Variante ensembliste de SP_PENNYLANE_GET_PRODUCTS : produits de toutes les
+    factures d'un lot d'écritures en un seul appel.
+    @NO_PRODUITS : liste de NO_PRODUIT séparés par des virgules.
+    Si une version spécifique de SP_PENNYLANE_GET_PRODUCTS existe, aucune ligne n'est
+    renvoyée et l'interface repasse par la procédure unitaire.
+
+Historique des mises à jour :
+> v001 - VABE - 18/10/2026 - Création
+//////////////////////////////////////////////////////////////////////// */
+
+CREATE PROCEDURE [SP_PENNYLANE_GET_PRODUCTS_LOT]
+    @NO_PRODUITS VARCHAR(MAX)
+AS
+BEGIN
+    SET NOCOUNT ON;
+
+    DECLARE @SPECIFIQUE BIT = 0;
+    IF EXISTS (SELECT * FROM sysobjects
+               WHERE id = object_id(N'[spe_SP_PENNYLANE_GET_PRODUCTS]')
+               AND OBJECTPROPERTY(id, N'IsProcedure') = 1)
+        SET @SPECIFIQUE = 1;
+
+    SELECT DISTINCT
+        P.PENNYLANE_ID AS "id",
+        CAST(P.NO_PRODUIT AS VARCHAR) AS "externalReference",
+        COALESCE(P.COD_PROD, '') AS "reference",
+        COALESCE(P.DES_COM, '') AS "label",
+        COALESCE(P.DES_TEC, '') AS "description",
+        COALESCE(TAX.CODE_CPTE_TAXE, 'FR_200') AS "vatRate",
+        COALESCE(
+            CASE
+                WHEN P.UA IN ('UN') THEN 'piece'
+                WHEN P.UA IN ('HEURE') THEN 'hour'
+                WHEN P.UA IN ('JOUR') THEN 'day'
+                ELSE 'no_unit'
+            END,
+            'no_unit'
+        ) AS "unit",
+        'EUR' AS "currency",
+        COALESCE(
+            CASE
+                WHEN P.TYPE_PROD IN ('PRESTA', 'CONTRAT') THEN 'services'
+                ELSE 'goods'
+            END,
+            'goods'
+        ) AS "substance",
+        COALESCE(P.CREER_LE, GETDATE()) AS "createdAt",
+        COALESCE(P.MODIF_LE, GETDATE()) AS "updatedAt",
+        COALESCE(P.PAB, 0) AS "priceBeforeTax",
+        COALESCE(P.PVB, 0) AS "price"
+    FROM PRODUITS P
+    INNER JOIN (SELECT DISTINCT TRY_CAST(value AS INT) AS NO_PRODUIT FROM STRING_SPLIT(@NO_PRODUITS, ',')) K ON K.NO_PRODUIT = P.NO_PRODUIT
+    LEFT JOIN T_TAXES TAX on TAX.CODE = P.COD_TAXE1
+    WHERE @SPECIFIQUE = 0
+END
+GO
@@ -0,0 +1,62 @@
+IF EXISTS (SELECT * FROM sys.objects
+           WHERE object_id = object_id(N'[SP_PENNYLANE_SUPPLIER_INVOICE_EXIST_LOT]')
+           AND is_ms_shipped = 0
+           AND [type] IN ('P'))
+    DROP PROCEDURE [SP_PENNYLANE_SUPPLIER_INVOICE_EXIST_LOT]
+GO
+
+SET QUOTED_IDENTIFIER ON
+GO
+SET ANSI_NULLS ON
+GO
+
+/* ////////////////////////////////////////////////////////////////////////
+Nom de la procédure stockée : SP_PENNYLANE_SUPPLIER_INVOICE_EXIST_LOT
+No Version : 001
+Description :
+    Variante ensembliste de SP_PENNYLANE_SUPPLIER_INVOICE_EXIST : factures d'achat
+    déjà importées parmi une page de factures Pennylane, en un seul appel.
+    @INVOICE_IDS : liste d'identifiants Pennylane séparés par des virgules.
+    Une ligne par facture existante, avec les valeurs reportées par
+    SP_PENNYLANE_SUPPLIER_INVOICE_MAJ (empreinte) : l'interface ne met à jour
+    que les factures dont l'une de ces valeurs a changé.
+    Une facture absente du résultat est toujours recontrôlée par la procédure unitaire
+    avant sa création. Si une version spécifique de SP_PENNYLANE_SUPPLIER_INVOICE_EXIST
+    existe, aucune ligne n'est renvoyée : toutes les factures repassent par elle.
+
+Historique des mises à jour :
+> v001 - VABE - 18/10/2026 - Création
+//////////////////////////////////////////////////////////////////////// */
+
+CREATE PROCEDURE [SP_PENNYLANE_SUPPLIER_INVOICE_EXIST_LOT]
+    @INVOICE_IDS VARCHAR(MAX)
+AS
+BEGIN
+    SET NOCOUNT ON;
+
+    DECLARE @SPECIFIQUE BIT = 0;
+    IF EXISTS (SELECT * FROM sysobjects
+               WHERE id = object_id(N'[spe_SP_PENNYLANE_SUPPLIER_INVOICE_EXIST]')
+               AND OBJECTPROPERTY(id, N'IsProcedure') = 1)
+        SET @SPECIFIQUE = 1;
+
+    SELECT
+        F.PENNYLANE_ID AS "invoiceId",
+        F.NO_A_FACTURE AS "noAFacture",
+        F.OBJET AS "objet",
+        CONVERT(VARCHAR(10), F.DATE_FACTURE, 23) AS "dateFacture",
+        LTRIM(RTRIM(F.COD_SITE)) AS "codSite",
+        TRY_CAST(F.TOTALHT_CONTROLE AS DECIMAL(19, 4)) AS "totalHt",
+        TRY_CAST(F.TOTALTTC_CONTROLE AS DECIMAL(19, 4)) AS "totalTtc",
+        TRY_CAST(F.TOTALTVA_CONTROLE AS DECIMAL(19, 4)) AS "totalTva",
+        F.C1 AS "invoiceNumber"
+    FROM (
+        SELECT A.*,
+               ROW_NUMBER() OVER (PARTITION BY A.PENNYLANE_ID ORDER BY A.NO_A_FACTURE) AS RANG
+        FROM A_FACTURE A
+        INNER JOIN (SELECT DISTINCT LTRIM(RTRIM(value)) AS INVOICE_ID FROM STRING_SPLIT(@INVOICE_IDS, ',')) K ON K.INVOICE_ID = A.PENNYLANE_ID
+    ) F
+    WHERE F.RANG = 1
+      AND @SPECIFIQUE = 0
+END
+GO
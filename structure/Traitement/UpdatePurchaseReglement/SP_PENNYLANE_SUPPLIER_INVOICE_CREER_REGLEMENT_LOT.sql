@@ -0,0 +1,141 @@
+IF EXISTS (SELECT * FROM sys.objects
+           WHERE object_id = object_id(N'[SP_PENNYLANE_SUPPLIER_INVOICE_CREER_REGLEMENT_LOT]')
+           AND is_ms_shipped = 0
+           AND [type] IN ('P'))
+    DROP PROCEDURE [SP_PENNYLANE_SUPPLIER_INVOICE_CREER_REGLEMENT_LOT]
+GO
+
+SET QUOTED_IDENTIFIER ON
+GO
+SET ANSI_NULLS ON
+GO
+
+/* ////////////////////////////////////////////////////////////////////////
+Nom de la procédure stockée : SP_PENNYLANE_SUPPLIER_INVOICE_CREER_REGLEMENT_LOT
+No Version : 001
+Description :
+    Variante ensembliste de SP_PENNYLANE_SUPPLIER_INVOICE_PURGE_OBSOLETE_TRANSACTIONS
+    et SP_PENNYLANE_SUPPLIER_INVOICE_CREER_REGLEMENT : toutes les transactions
+    rapprochées d'une ou plusieurs factures en un seul appel.
+    @REGLEMENTS_JSON : tableau JSON de lignes
+        { "invoiceId", "transactionId", "montant", "dateReglement" }
+    Pour chaque facture, dans l'ordre du tableau : purge des transactions qui ne lui
+    sont plus rapprochées, puis création de ses règlements. Les procédures unitaires
+    restent seules responsables des règles (répartition sur les échéances, doublons).
+    Renvoie une ligne par opération :
+        operation = 'PURGE' (transactionId NULL) ou 'REGLEMENT'
+        result    = code retour de la procédure unitaire
+                    (1 succès, -2 facture non trouvée, -3 déjà synchronisée, -99 erreur)
+
+Historique des mises à jour :
+> v001 - VABE - 18/10/2026 - Création
+//////////////////////////////////////////////////////////////////////// */
+
+CREATE PROCEDURE [SP_PENNYLANE_SUPPLIER_INVOICE_CREER_REGLEMENT_LOT]
+    @REGLEMENTS_JSON NVARCHAR(MAX)
+AS
+BEGIN
+    SET NOCOUNT ON;
+
+    DECLARE @LIGNES TABLE (
+        RANG INT,
+        INVOICE_ID VARCHAR(50),
+        TRANSACTION_ID BIGINT,
+        MONTANT DECIMAL(18, 2),
+        DATE_REGLEMENT VARCHAR(50)
+    );
+
+    DECLARE @RESULTATS TABLE (
+        RANG INT IDENTITY(1, 1),
+        INVOICE_ID VARCHAR(50),
+        TRANSACTION_ID BIGINT,
+        OPERATION VARCHAR(20),
+        RESULT INT
+    );
+
+    INSERT INTO @LIGNES (RANG, INVOICE_ID, TRANSACTION_ID, MONTANT, DATE_REGLEMENT)
+    SELECT CAST(J.[key] AS INT), L.INVOICE_ID, L.TRANSACTION_ID, L.MONTANT, L.DATE_REGLEMENT
+    FROM OPENJSON(@REGLEMENTS_JSON) J
+    CROSS APPLY OPENJSON(J.value) WITH (
+        INVOICE_ID VARCHAR(50) '$.invoiceId',
+        TRANSACTION_ID BIGINT '$.transactionId',
+        MONTANT DECIMAL(18, 2) '$.montant',
+        DATE_REGLEMENT VARCHAR(50) '$.dateReglement'
+    ) L;
+
+    DECLARE @INVOICE_ID VARCHAR(50);
+    DECLARE @TRANSACTION_ID BIGINT;
+    DECLARE @MONTANT DECIMAL(18, 2);
+    DECLARE @DATE_REGLEMENT VARCHAR(50);
+    DECLARE @VALID_IDS VARCHAR(MAX);
+    DECLARE @RESULT INT;
+
+    -- Factures dans l'ordre de leur première ligne
+    DECLARE factures_cursor CURSOR LOCAL FAST_FORWARD FOR
+        SELECT INVOICE_ID
+        FROM @LIGNES
+        GROUP BY INVOICE_ID
+        ORDER BY MIN(RANG);
+
+    OPEN factures_cursor;
+    FETCH NEXT FROM factures_cursor INTO @INVOICE_ID;
+
+    WHILE @@FETCH_STATUS = 0
+    BEGIN
+        SET @VALID_IDS = STUFF((
+            SELECT ',' + CAST(TRANSACTION_ID AS VARCHAR(20))
+            FROM @LIGNES
+            WHERE INVOICE_ID = @INVOICE_ID AND TRANSACTION_ID IS NOT NULL
+            ORDER BY RANG
+            FOR XML PATH('')), 1, 1, '');
+
+        SET @RESULT = NULL;
+        EXEC SP_PENNYLANE_SUPPLIER_INVOICE_PURGE_OBSOLETE_TRANSACTIONS
+            @INVOICE_ID = @INVOICE_ID,
+            @VALID_TRANSACTION_IDS_CSV = @VALID_IDS,
+            @RESULT_OUTPUT = @RESULT OUTPUT;
+        INSERT INTO @RESULTATS (INVOICE_ID, TRANSACTION_ID, OPERATION, RESULT)
+        VALUES (@INVOICE_ID, NULL, 'PURGE', @RESULT);
+
+        DECLARE lignes_cursor CURSOR LOCAL FAST_FORWARD FOR
+            SELECT TRANSACTION_ID, MONTANT, DATE_REGLEMENT
+            FROM @LIGNES
+            WHERE INVOICE_ID = @INVOICE_ID
+            ORDER BY RANG;
+
+        OPEN lignes_cursor;
+        FETCH NEXT FROM lignes_cursor INTO @TRANSACTION_ID, @MONTANT, @DATE_REGLEMENT;
+
+        WHILE @@FETCH_STATUS = 0
+        BEGIN
+            SET @RESULT = NULL;
+            EXEC SP_PENNYLANE_SUPPLIER_INVOICE_CREER_REGLEMENT
+                @INVOICE_ID = @INVOICE_ID,
+                @TRANSACTION_ID = @TRANSACTION_ID,
+                @MONTANT = @MONTANT,
+                @DATE_REGLEMENT = @DATE_REGLEMENT,
+                @RESULT_OUTPUT = @RESULT OUTPUT;
+            INSERT INTO @RESULTATS (INVOICE_ID, TRANSACTION_ID, OPERATION, RESULT)
+            VALUES (@INVOICE_ID, @TRANSACTION_ID, 'REGLEMENT', @RESULT);
+
+            FETCH NEXT FROM lignes_cursor INTO @TRANSACTION_ID, @MONTANT, @DATE_REGLEMENT;
+        END
+
+        CLOSE lignes_cursor;
+        DEALLOCATE lignes_cursor;
+
+        FETCH NEXT FROM factures_cursor INTO @INVOICE_ID;
+    END
+
+    CLOSE factures_cursor;
+    DEALLOCATE factures_cursor;
+
+    SELECT
+        INVOICE_ID AS "invoiceId",
+        TRANSACTION_ID AS "transactionId",
+        OPERATION AS "operation",
+        RESULT AS "result"
+    FROM @RESULTATS
+    ORDER BY RANG;
+END
+GO